@@ -0,0 +1,155 @@
+package by.slava_borisov.benchmark;
+
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.TransactionDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.util.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути DAO на встроенной H2. Режим SampleTime даёт перцентили задержки,
+ * Throughput — операции в секунду. Каждый поток работает со своими счетами, поэтому
+ * многопоточный вариант меряет накладные расходы, а не ожидание блокировок одного счёта.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public abstract class AbstractAccountDaoBenchmark {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @State(Scope.Benchmark)
+    public static class Bank {
+
+        AnnotationConfigApplicationContext context;
+        AccountDao accountDao;
+        UserDao userDao;
+        TransactionDao transactionDao;
+        TransactionHelper transactionHelper;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkContext.inMemory("bench_" + UUID.randomUUID().toString().replace("-", ""),
+                    Runtime.getRuntime().availableProcessors());
+            accountDao = context.getBean(AccountDao.class);
+            userDao = context.getBean(UserDao.class);
+            transactionDao = context.getBean(TransactionDao.class);
+            transactionHelper = context.getBean(TransactionHelper.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+
+        Long createUser(String login) {
+            userDao.addUser(login);
+            return userDao.getUserByLogin(login).getId();
+        }
+
+        List<Long> accountsOf(Long userId) {
+            return transactionHelper.executeInTransaction(session -> {
+                return session.createQuery(
+                                "SELECT a.id FROM Account a WHERE a.user.id = :userId AND a.isClosed = false "
+                                        + "ORDER BY a.id", Long.class)
+                        .setParameter("userId", userId)
+                        .getResultList();
+            });
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+
+        Long ownerId;
+        Long account;
+        Long sameOwnerAccount;
+        Long otherOwnerAccount;
+        long loginCounter;
+        String threadPrefix;
+
+        @Setup(Level.Trial)
+        public void setUp(Bank bank) {
+            threadPrefix = UUID.randomUUID().toString().substring(0, 8);
+            ownerId = bank.createUser(threadPrefix + "_owner");
+            bank.accountDao.createAccount(ownerId);
+            List<Long> own = bank.accountsOf(ownerId);
+            account = own.get(0);
+            sameOwnerAccount = own.get(1);
+            otherOwnerAccount = bank.accountsOf(bank.createUser(threadPrefix + "_other")).get(0);
+
+            bank.accountDao.deposit(account, INITIAL_BALANCE);
+            bank.accountDao.deposit(sameOwnerAccount, INITIAL_BALANCE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AccountToClose {
+
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void setUp(Bank bank, Accounts accounts) {
+            bank.accountDao.createAccount(accounts.ownerId);
+            List<Long> own = bank.accountsOf(accounts.ownerId);
+            id = own.get(own.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public OperationResult deposit(Bank bank, Accounts accounts) {
+        return bank.accountDao.deposit(accounts.account, AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult withdraw(Bank bank, Accounts accounts) {
+        return bank.accountDao.withdraw(accounts.account, AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult transferIntraUser(Bank bank, Accounts accounts) {
+        return bank.accountDao.transfer(accounts.account, accounts.sameOwnerAccount, AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult transferInterUserWithFee(Bank bank, Accounts accounts) {
+        return bank.accountDao.transfer(accounts.account, accounts.otherOwnerAccount, AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult closeAccount(Bank bank, AccountToClose account) {
+        return bank.accountDao.closeAccount(account.id);
+    }
+
+    @Benchmark
+    public OperationResult addUser(Bank bank, Accounts accounts) {
+        return bank.userDao.addUser(accounts.threadPrefix + "_" + accounts.loginCounter++);
+    }
+
+    @Benchmark
+    public void createTransaction(Bank bank, Accounts accounts) {
+        bank.transactionDao.createTransaction(TransactionType.DEPOSIT, AMOUNT, accounts.account);
+    }
+}
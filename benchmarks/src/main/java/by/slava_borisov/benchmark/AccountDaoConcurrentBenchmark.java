@@ -0,0 +1,7 @@
+package by.slava_borisov.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+@Threads(Threads.MAX)
+public class AccountDaoConcurrentBenchmark extends AbstractAccountDaoBenchmark {
+}
@@ -0,0 +1,61 @@
+package by.slava_borisov.benchmark;
+
+import by.slava_borisov.config.Profiles;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Контекст приложения поверх встроенной H2 для бенчмарков.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static AnnotationConfigApplicationContext inMemory(String databaseName, int poolSize) {
+        return create("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                databaseName, poolSize, Map.of());
+    }
+
+    /**
+     * Контекст профиля in-memory: база не поднимается, журнал пишется в {@code walFile}.
+     */
+    static AnnotationConfigApplicationContext ledger(Path walFile) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.IN_MEMORY);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "bank.in-memory.wal.file", walFile.toString(),
+                "bank.metrics.jmx.enabled", "false")));
+        context.scan("by.slava_borisov");
+        context.refresh();
+        return context;
+    }
+
+    static AnnotationConfigApplicationContext create(String url, String poolName, int poolSize,
+                                                     Map<String, Object> overrides) {
+        // Flyway держит отдельное соединение под блокировку схемы, одного соединения ему мало
+        poolSize = Math.max(2, poolSize);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("db.driver", "org.h2.Driver");
+        properties.put("db.url", url);
+        properties.put("db.username", "sa");
+        properties.put("db.password", "");
+        properties.put("db.pool.name", poolName);
+        properties.put("db.pool.maximum-size", String.valueOf(poolSize));
+        properties.put("db.pool.minimum-idle", String.valueOf(poolSize));
+        properties.put("db.pool.register-mbeans", "false");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        properties.putAll(overrides);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.scan("by.slava_borisov");
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,106 @@
+package by.slava_borisov.benchmark;
+
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.service.AccountService;
+import by.slava_borisov.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Те же операции, что в {@link AccountDaoBenchmark}, через сервисы профиля in-memory:
+ * счета в памяти, каждое изменение пишется в журнал в файле, отображённом в память.
+ * Единицы измерения те же, чтобы результаты сравнивались напрямую.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(Threads.MAX)
+public class LedgerEngineBenchmark {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @State(Scope.Benchmark)
+    public static class Bank {
+
+        Path directory;
+        AnnotationConfigApplicationContext context;
+        AccountService accountService;
+        UserService userService;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("ledger-bench");
+            context = BenchmarkContext.ledger(directory.resolve("ledger.wal"));
+            accountService = context.getBean(AccountService.class);
+            userService = context.getBean(UserService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            context.close();
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+
+        Long account;
+        Long sameOwnerAccount;
+        Long otherOwnerAccount;
+
+        @Setup(Level.Trial)
+        public void setUp(Bank bank) {
+            String threadPrefix = UUID.randomUUID().toString().substring(0, 8);
+            OperationResult owner = bank.userService.createUser(threadPrefix + "_owner");
+            account = owner.getAccountId();
+            sameOwnerAccount = bank.accountService.createAccount(owner.getUserId()).getAccountId();
+            otherOwnerAccount = bank.userService.createUser(threadPrefix + "_other").getAccountId();
+
+            bank.accountService.accountDeposit(account, INITIAL_BALANCE);
+            bank.accountService.accountDeposit(sameOwnerAccount, INITIAL_BALANCE);
+        }
+    }
+
+    @Benchmark
+    public OperationResult deposit(Bank bank, Accounts accounts) {
+        return bank.accountService.accountDeposit(accounts.account, AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult transferIntraUser(Bank bank, Accounts accounts) {
+        return bank.accountService.accountTransfer(accounts.account, accounts.sameOwnerAccount, AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult transferInterUserWithFee(Bank bank, Accounts accounts) {
+        return bank.accountService.accountTransfer(accounts.account, accounts.otherOwnerAccount, AMOUNT);
+    }
+}
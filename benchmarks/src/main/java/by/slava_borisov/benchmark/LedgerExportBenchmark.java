@@ -0,0 +1,135 @@
+package by.slava_borisov.benchmark;
+
+import by.slava_borisov.export.ExportFormat;
+import by.slava_borisov.export.ExportReport;
+import by.slava_borisov.export.LedgerExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скорость потоковой выгрузки журнала. Строки журнала хранятся в файловой базе H2
+ * в {@code build/bench-ledger} и заполняются один раз на каждый размер.
+ * Время одной выгрузки делённое на {@code rows} даёт стоимость строки; с {@code -prof gc}
+ * видно, что выделение памяти на строку не растёт с размером таблицы.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class LedgerExportBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final int INSERT_BATCH = 10_000;
+
+    @Param({"1000000", "10000000"})
+    public long rows;
+
+    @Param({"CSV", "JSONL"})
+    public ExportFormat format;
+
+    private AnnotationConfigApplicationContext context;
+    private LedgerExporter ledgerExporter;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        Path directory = Path.of("build", "bench-ledger");
+        Files.createDirectories(directory);
+        String url = "jdbc:h2:file:" + directory.toAbsolutePath().resolve("ledger_" + rows);
+        context = BenchmarkContext.create(url, "export_bench", 2, Map.of());
+        ledgerExporter = context.getBean(LedgerExporter.class);
+        output = Files.createTempFile("ledger", "." + format.name().toLowerCase());
+
+        seed(context.getBean(DataSource.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public ExportReport export() {
+        return ledgerExporter.export(output, format);
+    }
+
+    private void seed(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            long existing;
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM transactions")) {
+                resultSet.next();
+                existing = resultSet.getLong(1);
+            }
+            if (existing == rows) {
+                return;
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM transactions");
+                statement.executeUpdate("DELETE FROM accounts");
+                statement.executeUpdate("DELETE FROM users");
+                statement.executeUpdate("INSERT INTO users (id, login, create_at) "
+                        + "VALUES (1, 'bench', CURRENT_TIMESTAMP)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO accounts "
+                    + "(id, balance, is_closed, created_at, user_id, version) VALUES (?, 0, FALSE, ?, 1, 0)")) {
+                for (long id = 1; id <= ACCOUNTS; id++) {
+                    insert.setLong(1, id);
+                    insert.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO transactions "
+                    + "(id, amount, transaction_type, created_at, from_account_id, to_account_id) "
+                    + "VALUES (?, ?, 'TRANSFER', ?, ?, ?)")) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (long id = 1; id <= rows; id++) {
+                    insert.setLong(1, id);
+                    insert.setBigDecimal(2, BigDecimal.valueOf(id % 10_000, 2));
+                    insert.setTimestamp(3, now);
+                    insert.setLong(4, 1 + id % ACCOUNTS);
+                    insert.setLong(5, 1 + (id + 1) % ACCOUNTS);
+                    insert.addBatch();
+                    if (id % INSERT_BATCH == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package by.slava_borisov.benchmark;
+
+import by.slava_borisov.money.FeeRate;
+import by.slava_borisov.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Арифметика перевода в памяти: комиссия, проверка остатка, списание и зачисление —
+ * на {@link BigDecimal}, как было в пакетных переводах, и на {@link Money} в копейках.
+ * Разбор суммы из строки сравнивается так же. Выделение памяти на операцию показывает
+ * {@code -prof gc} (строка {@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final int TRANSFERS = 4096;
+    private static final BigDecimal FEE = new BigDecimal("0.05");
+
+    @State(Scope.Thread)
+    public static class Ledger {
+
+        BigDecimal[] decimalBalances = new BigDecimal[ACCOUNTS];
+        Money[] moneyBalances = new Money[ACCOUNTS];
+        int[] from = new int[TRANSFERS];
+        int[] to = new int[TRANSFERS];
+        BigDecimal[] decimalAmounts = new BigDecimal[TRANSFERS];
+        Money[] moneyAmounts = new Money[TRANSFERS];
+        String[] texts = new String[TRANSFERS];
+        FeeRate feeRate = FeeRate.of(FEE);
+        int next;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            for (int i = 0; i < ACCOUNTS; i++) {
+                decimalBalances[i] = new BigDecimal("1000000.00");
+                moneyBalances[i] = Money.of(decimalBalances[i]);
+            }
+            for (int i = 0; i < TRANSFERS; i++) {
+                from[i] = random.nextInt(ACCOUNTS);
+                to[i] = random.nextInt(ACCOUNTS);
+                decimalAmounts[i] = BigDecimal.valueOf(1 + random.nextInt(100_000), Money.SCALE);
+                moneyAmounts[i] = Money.of(decimalAmounts[i]);
+                texts[i] = decimalAmounts[i].toPlainString();
+            }
+        }
+
+        int next() {
+            int i = next;
+            next = (i + 1) & (TRANSFERS - 1);
+            return i;
+        }
+    }
+
+    @Benchmark
+    public boolean transferBigDecimal(Ledger ledger) {
+        int i = ledger.next();
+        BigDecimal amount = ledger.decimalAmounts[i];
+        BigDecimal fee = amount.multiply(FEE).setScale(Money.SCALE, RoundingMode.HALF_UP);
+        BigDecimal senderBalance = ledger.decimalBalances[ledger.from[i]];
+        if (senderBalance.compareTo(amount.add(fee)) < 0) {
+            return false;
+        }
+        ledger.decimalBalances[ledger.from[i]] = senderBalance.subtract(amount).subtract(fee);
+        ledger.decimalBalances[ledger.to[i]] = ledger.decimalBalances[ledger.to[i]].add(amount);
+        return true;
+    }
+
+    @Benchmark
+    public boolean transferMoney(Ledger ledger) {
+        int i = ledger.next();
+        Money amount = ledger.moneyAmounts[i];
+        Money debit = amount.plus(ledger.feeRate.feeOf(amount));
+        Money senderBalance = ledger.moneyBalances[ledger.from[i]];
+        if (senderBalance.isLessThan(debit)) {
+            return false;
+        }
+        ledger.moneyBalances[ledger.from[i]] = senderBalance.minus(debit);
+        ledger.moneyBalances[ledger.to[i]] = ledger.moneyBalances[ledger.to[i]].plus(amount);
+        return true;
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal(Ledger ledger) {
+        return new BigDecimal(ledger.texts[ledger.next()]);
+    }
+
+    @Benchmark
+    public Money parseMoney(Ledger ledger) {
+        return Money.parse(ledger.texts[ledger.next()]);
+    }
+}
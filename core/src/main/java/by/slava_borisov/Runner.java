@@ -1,29 +1,99 @@
 package by.slava_borisov;
 
+import by.slava_borisov.batch.BatchLineResult;
+import by.slava_borisov.batch.BatchOperation;
+import by.slava_borisov.batch.BatchProcessor;
+import by.slava_borisov.batch.BatchReport;
+import by.slava_borisov.cache.AccountCache;
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.AccountView;
+import by.slava_borisov.dto.DailyTotal;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.ReconciliationMismatch;
+import by.slava_borisov.dto.ReconciliationReport;
+import by.slava_borisov.dto.ReportFilter;
+import by.slava_borisov.dto.StatementSummary;
+import by.slava_borisov.dto.TransactionFilter;
+import by.slava_borisov.dto.TransactionView;
+import by.slava_borisov.dto.TypeTotal;
+import by.slava_borisov.dto.UserView;
+import by.slava_borisov.export.ExportFormat;
+import by.slava_borisov.export.ExportReport;
+import by.slava_borisov.export.LedgerExporter;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.metrics.ConnectionPoolMetrics;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.metrics.PersistenceStatistics;
+import by.slava_borisov.output.AsyncOutput;
+import by.slava_borisov.output.ResultFormatter;
 import by.slava_borisov.service.AccountService;
+import by.slava_borisov.service.ReconciliationService;
+import by.slava_borisov.service.ReportService;
 import by.slava_borisov.service.TransactionService;
 import by.slava_borisov.service.UserService;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
 
 public class Runner {
+    private static AsyncOutput out;
     private static Scanner scanner;
     private static AccountService accountService;
     private static TransactionService transactionService;
     private static UserService userService;
+    private static LedgerExporter ledgerExporter;
+    private static ReconciliationService reconciliationService;
+    private static ReportService reportService;
+    private static PersistenceStatistics persistenceStatistics;
+    private static OperationMetrics operationMetrics;
+    private static ConnectionPoolMetrics connectionPoolMetrics;
+    private static AccountCache accountCache;
 
     public static void main(String[] args) {
+        // результаты операций печатает фоновый поток, поток операций на консоль не ждёт
+        out = new AsyncOutput(System.out);
+        if (args.length > 0 && args[0].equals("--batch")) {
+            int status;
+            try {
+                status = runBatch(args);
+            } finally {
+                out.close();
+            }
+            System.exit(status);
+        }
         try (AnnotationConfigApplicationContext context =
                      new AnnotationConfigApplicationContext("by.slava_borisov")) {
 
             accountService = context.getBean(AccountService.class);
-            transactionService = context.getBean(TransactionService.class);
             userService = context.getBean(UserService.class);
+            operationMetrics = context.getBean(OperationMetrics.class);
+            // в профиле in-memory базы нет, и журнал транзакций, отчёты и выгрузка недоступны
+            transactionService = context.getBeanProvider(TransactionService.class).getIfAvailable();
+            ledgerExporter = context.getBeanProvider(LedgerExporter.class).getIfAvailable();
+            reconciliationService = context.getBeanProvider(ReconciliationService.class).getIfAvailable();
+            reportService = context.getBeanProvider(ReportService.class).getIfAvailable();
+            persistenceStatistics = context.getBeanProvider(PersistenceStatistics.class).getIfAvailable();
+            connectionPoolMetrics = context.getBeanProvider(ConnectionPoolMetrics.class).getIfAvailable();
+            accountCache = context.getBeanProvider(AccountCache.class).getIfAvailable();
 
-            scanner = new Scanner(System.in);
+            // перед ожиданием ввода выводится всё накопленное, иначе подсказка не успеет появиться
+            scanner = new Scanner(new FilterInputStream(System.in) {
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    out.flush();
+                    return super.read(buffer, offset, length);
+                }
+            });
             boolean exit = false;
 
             while (!exit) {
@@ -32,20 +102,70 @@ public class Runner {
                     int choice = getChoice();
                     exit = processChoice(choice);
                 } catch (InputMismatchException e) {
-                    System.out.println("Ошибка ввода. Пожалуйста, введите номер команды (целое число).\n");
+                    out.println("Ошибка ввода. Пожалуйста, введите номер команды (целое число).\n");
                     scanner.nextLine();
                 } catch (Exception e) {
-                    System.out.println("Произошла ошибка: " + e.getMessage() + "\n");
+                    out.println("Произошла ошибка: " + e.getMessage() + "\n");
                     scanner.nextLine();
                 }
             }
         } catch (Exception e) {
+            out.flush();
             System.err.println("Критическая ошибка приложения: " + e.getMessage());
             e.printStackTrace();
         } finally {
             if (scanner != null) {
                 scanner.close();
             }
+            out.close();
+        }
+    }
+
+    /**
+     * Пакетный режим: {@code --batch <файл> [--reject <файл отказов>]}.
+     *
+     * @return код завершения: 0 — все строки выполнены, 1 — есть отказы, 2 — файл не обработан
+     */
+    private static int runBatch(String[] args) {
+        if (args.length != 2 && !(args.length == 4 && args[2].equals("--reject"))) {
+            System.err.println("Использование: --batch <файл> [--reject <файл отказов>]");
+            System.err.println("Операции в файле, по одной на строку:");
+            for (BatchOperation operation : BatchOperation.values()) {
+                System.err.println("  " + operation.getUsage());
+            }
+            return 2;
+        }
+        Path input = Path.of(args[1]);
+        Path rejectFile = args.length == 4 ? Path.of(args[3]) : Path.of(args[1] + ".rej");
+
+        try (AnnotationConfigApplicationContext context =
+                     new AnnotationConfigApplicationContext("by.slava_borisov")) {
+            BatchProcessor batchProcessor = context.getBeanProvider(BatchProcessor.class).getIfAvailable();
+            if (batchProcessor == null) {
+                System.err.println("Пакетный режим недоступен в профиле " + Profiles.IN_MEMORY);
+                return 2;
+            }
+            BatchReport report = batchProcessor.run(input, rejectFile, Runner::printBatchLine);
+
+            out.printf("Строк: %d, выполнено: %d, отклонено: %d. Порций: %d, из них повторено построчно: %d.%n",
+                    report.getLines(), report.getSucceeded(), report.getRejected(),
+                    report.getChunks(), report.getReplayedChunks());
+            out.printf("Время: %d мс (%.0f строк/с).%n", report.getElapsedMillis(), report.getLinesPerSecond());
+            if (report.getRejectFile() != null) {
+                out.println("Отклонённые строки записаны в " + report.getRejectFile());
+            }
+            return report.getRejected() == 0 ? 0 : 1;
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+    }
+
+    private static void printBatchLine(BatchLineResult result) {
+        if (result.isSuccess()) {
+            out.printf("%d: OK %s%n", result.getLineNumber(), result.getLine());
+        } else {
+            out.printf("%d: ОШИБКА %s — %s%n", result.getLineNumber(), result.getLine(), result.getError());
         }
     }
 
@@ -59,147 +179,408 @@ public class Runner {
                 case 5 -> depositAccount();
                 case 6 -> transferAccount();
                 case 7 -> withDrawAccount();
-                case 8 -> showAllTransactions();
+                case 8 -> {
+                    if (available(transactionService)) {
+                        showAllTransactions();
+                    }
+                }
                 case 9 -> {
-                    System.out.println("Выход из программы...");
+                    if (available(transactionService)) {
+                        searchTransactions();
+                    }
+                }
+                case 10 -> {
+                    if (available(ledgerExporter)) {
+                        exportTransactions();
+                    }
+                }
+                case 11 -> {
+                    if (available(reconciliationService)) {
+                        reconcileBalances();
+                    }
+                }
+                case 12 -> {
+                    if (available(reportService)) {
+                        showDailyReport();
+                    }
+                }
+                case 13 -> {
+                    if (available(transactionService)) {
+                        showStatement();
+                    }
+                }
+                case 14 -> showStatistics();
+                case 0 -> {
+                    out.println("Выход из программы...");
                     return true;
                 }
-                default -> System.out.println("Неверный выбор. Пожалуйста, выберите номер от 1 до 8.\n");
+                default -> out.println("Неверный выбор. Пожалуйста, выберите номер из меню.\n");
             }
         } catch (Exception e) {
-            System.out.println("Ошибка при выполнении операции: " + e.getMessage() + "\n");
+            out.println("Ошибка при выполнении операции: " + e.getMessage() + "\n");
         }
         return false;
     }
 
+    private static boolean available(Object service) {
+        if (service == null) {
+            out.println("Недоступно в профиле " + Profiles.IN_MEMORY + ": команде нужна база данных.\n");
+            return false;
+        }
+        return true;
+    }
+
 
     private static void showAllTransactions() {
-        System.out.println("---ВЫВОД ВСЕХ ТРАНЗАКЦИЙ---\n");
-        transactionService.showAllTransaction();
-        System.out.println();
+        out.println("---ВЫВОД ВСЕХ ТРАНЗАКЦИЙ---\n");
+        pageTransactions(TransactionFilter.all());
+        out.println();
+    }
+
+    private static void searchTransactions() {
+        out.println("---ПОИСК ТРАНЗАКЦИЙ---\n");
+        try {
+            out.println("Номер счёта (Enter — любой): ");
+            String account = scanner.nextLine().trim();
+
+            out.println("Тип " + Arrays.toString(TransactionType.values()) + " (Enter — любой): ");
+            String type = scanner.nextLine().trim();
+
+            out.println("Дата с, ГГГГ-ММ-ДД (Enter — без ограничения): ");
+            String from = scanner.nextLine().trim();
+
+            out.println("Дата по, ГГГГ-ММ-ДД включительно (Enter — без ограничения): ");
+            String to = scanner.nextLine().trim();
+
+            TransactionFilter filter = TransactionFilter.builder()
+                    .accountId(account.isEmpty() ? null : Long.parseLong(account))
+                    .type(type.isEmpty() ? null : TransactionType.valueOf(type.toUpperCase()))
+                    .from(from.isEmpty() ? null : LocalDate.parse(from).atStartOfDay())
+                    .to(to.isEmpty() ? null : LocalDate.parse(to).plusDays(1).atStartOfDay())
+                    .build();
+            pageTransactions(filter);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            out.println("Ошибка ввода. Номер счёта должен быть числом, дата — в формате ГГГГ-ММ-ДД.\n");
+        } catch (IllegalArgumentException e) {
+            out.println("Ошибка ввода. Неизвестный тип транзакции.\n");
+        }
+        out.println();
+    }
+
+    private static void exportTransactions() {
+        out.println("---ЭКСПОРТ ТРАНЗАКЦИЙ---\n");
+        out.println("Введите путь к файлу: ");
+        String file = scanner.nextLine().trim();
+        if (file.isEmpty()) {
+            out.println("Путь не может быть пустым.\n");
+            return;
+        }
+        out.println("Формат " + Arrays.toString(ExportFormat.values()) + " (Enter — CSV): ");
+        String format = scanner.nextLine().trim();
+        try {
+            ExportReport report = ledgerExporter.export(Path.of(file),
+                    format.isEmpty() ? ExportFormat.CSV : ExportFormat.valueOf(format.toUpperCase()));
+            out.printf("Выгружено %d транзакций в %s за %d мс (%.0f строк/с).%n",
+                    report.getRows(), report.getFile(), report.getElapsedMillis(), report.getRowsPerSecond());
+        } catch (IllegalArgumentException e) {
+            out.println("Ошибка ввода. Неизвестный формат или путь к файлу.\n");
+        } catch (UncheckedIOException e) {
+            out.println(e.getMessage() + "\n");
+        }
+        out.println();
+    }
+
+    private static void showStatistics() {
+        out.println("---СТАТИСТИКА---\n");
+        if (persistenceStatistics != null) {
+            out.println(persistenceStatistics);
+        }
+        if (connectionPoolMetrics != null) {
+            out.println(connectionPoolMetrics);
+            out.println();
+        }
+        if (accountCache != null) {
+            out.println(accountCache);
+            out.println();
+        }
+        out.println(operationMetrics);
+    }
+
+    private static void showStatement() {
+        out.println("---ВЫПИСКА ПО СЧЁТУ---\n");
+        try {
+            out.println("Введите номер счёта: ");
+            Long accountId = Long.parseLong(scanner.nextLine().trim());
+
+            out.println("Дата с, ГГГГ-ММ-ДД (Enter — с открытия счёта): ");
+            String from = scanner.nextLine().trim();
+
+            out.println("Дата по, ГГГГ-ММ-ДД включительно (Enter — по сегодня): ");
+            String to = scanner.nextLine().trim();
+
+            out.printf("%-8s %-28s %-15s %-12s %-15s %-15s%n",
+                    "ID", "Дата", "Тип", "Счёт", "Изменение", "Баланс");
+            StatementSummary summary = transactionService.accountStatement(accountId,
+                    from.isEmpty() ? null : LocalDate.parse(from),
+                    to.isEmpty() ? null : LocalDate.parse(to),
+                    line -> out.printf("%-8d %-28s %-15s %-12s %-15s %-15s%n", line.getTransactionId(),
+                            line.getCreatedAt(), line.getType(),
+                            line.getCounterpartyAccountId() != null ? line.getCounterpartyAccountId() : "",
+                            line.getChange(), line.getBalance()));
+            out.printf("Операций: %d. Баланс на начало: %s, на конец: %s.%n",
+                    summary.getLines(), summary.getOpeningBalance(), summary.getClosingBalance());
+        } catch (NumberFormatException | DateTimeParseException e) {
+            out.println("Ошибка ввода. Номер счёта должен быть числом, дата — в формате ГГГГ-ММ-ДД.\n");
+        }
+        out.println();
+    }
+
+    private static void showDailyReport() {
+        out.println("---ОТЧЁТ ПО ДНЯМ---\n");
+        try {
+            out.println("Номер счёта (Enter — все): ");
+            String account = scanner.nextLine().trim();
+
+            out.println("Тип " + Arrays.toString(TransactionType.values()) + " (Enter — любой): ");
+            String type = scanner.nextLine().trim();
+
+            out.println("Дата с, ГГГГ-ММ-ДД (Enter — без ограничения): ");
+            String from = scanner.nextLine().trim();
+
+            out.println("Дата по, ГГГГ-ММ-ДД включительно (Enter — без ограничения): ");
+            String to = scanner.nextLine().trim();
+
+            ReportFilter filter = ReportFilter.builder()
+                    .accountId(account.isEmpty() ? null : Long.parseLong(account))
+                    .type(type.isEmpty() ? null : TransactionType.valueOf(type.toUpperCase()))
+                    .from(from.isEmpty() ? null : LocalDate.parse(from))
+                    .to(to.isEmpty() ? null : LocalDate.parse(to))
+                    .build();
+            List<DailyTotal> days = reportService.getDailyTotals(filter);
+            if (days.isEmpty()) {
+                out.println("Операций за период не обнаружено.\n");
+                return;
+            }
+            out.printf("%-12s %-8s %-15s %-8s %-15s %-8s %-15s%n",
+                    "Дата", "Счёт", "Тип", "Расход", "Сумма", "Приход", "Сумма");
+            for (DailyTotal day : days) {
+                out.printf("%-12s %-8d %-15s %-8d %-15s %-8d %-15s%n", day.getDate(), day.getAccountId(),
+                        day.getType(), day.getOutgoingCount(), day.getOutgoingAmount(),
+                        day.getIncomingCount(), day.getIncomingAmount());
+            }
+            out.println("\nИтого по типам:");
+            for (TypeTotal total : reportService.getTypeTotals(filter)) {
+                out.printf("%-15s %-8d %-15s%n", total.getType(), total.getCount(), total.getAmount());
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            out.println("Ошибка ввода. Номер счёта должен быть числом, дата — в формате ГГГГ-ММ-ДД.\n");
+        } catch (IllegalArgumentException e) {
+            out.println("Ошибка ввода. Неизвестный тип транзакции.\n");
+        }
+        out.println();
+    }
+
+    private static void reconcileBalances() {
+        out.println("---СВЕРКА БАЛАНСОВ С ЖУРНАЛОМ---\n");
+        ReconciliationReport report = reconciliationService.reconcileAll();
+        out.printf("Проверено счетов: %d, проиграно записей журнала: %d, за %d мс.%n",
+                report.getAccountsChecked(), report.getLedgerRowsReplayed(), report.getElapsedMillis());
+        if (report.isConsistent()) {
+            out.println("Расхождений не обнаружено.");
+        } else {
+            out.printf("%-10s %-15s %-15s %-15s%n", "Счёт", "Баланс", "По журналу", "Разница");
+            for (ReconciliationMismatch mismatch : report.getMismatches()) {
+                out.printf("%-10d %-15s %-15s %-15s%n", mismatch.getAccountId(), mismatch.getBalance(),
+                        mismatch.getExpected(), mismatch.getDifference());
+            }
+        }
+        out.println();
+    }
+
+    private static void pageTransactions(TransactionFilter filter) {
+        Page<TransactionView> page = transactionService.getTransactions(filter, null);
+        if (page.getItems().isEmpty()) {
+            out.println("Транзакций не обнаружено.");
+            return;
+        }
+        out.printf("%-5s %-15s %-20s %-30s %-15s %-15s%n",
+                "ID", "Сумма", "Тип", "Дата", "Отправитель", "Получатель");
+        out.println("-".repeat(110));
+        printTransactions(page);
+        while (page.hasNext()) {
+            out.println("Enter — следующая страница, q — назад в меню");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            page = transactionService.getTransactions(filter, page.getNextCursor());
+            if (page.getItems().isEmpty()) {
+                out.println("Больше транзакций нет.");
+            }
+            printTransactions(page);
+        }
+    }
+
+    private static void printTransactions(Page<TransactionView> page) {
+        for (TransactionView transaction : page.getItems()) {
+            out.printf("%-5d %-15s %-20s %-30s %-15s %-15s%n",
+                    transaction.getId(),
+                    transaction.getAmount(),
+                    transaction.getType(),
+                    transaction.getCreatedAt(),
+                    transaction.getFromAccountId() != null ? transaction.getFromAccountId() : "N/A",
+                    transaction.getToAccountId() != null ? transaction.getToAccountId() : "N/A");
+        }
     }
 
 
     private static void withDrawAccount() {
-        System.out.println("---СНЯТЬ СУММУ СО СЧЁТА---\n");
+        out.println("---СНЯТЬ СУММУ СО СЧЁТА---\n");
 
         try {
-            System.out.println("Введите номер счёта для снятия: ");
+            out.println("Введите номер счёта для снятия: ");
             Long accountId = scanner.nextLong();
 
-            System.out.println("Введите сумму: ");
+            out.println("Введите сумму: ");
             BigDecimal amount = scanner.nextBigDecimal();
 
-            accountService.accountWithDraw(accountId, amount);
+            out.println(ResultFormatter.format(accountService.accountWithDraw(accountId, amount)));
         } catch (InputMismatchException e) {
-            System.out.println("Ошибка ввода. Номер счёта и сумма должны быть числами.\n");
+            out.println("Ошибка ввода. Номер счёта и сумма должны быть числами.\n");
             scanner.nextLine();
         }
-        System.out.println();
+        out.println();
     }
 
     private static void transferAccount() {
-        System.out.println("---ОТПРАВИТЬ ДЕНЬГИ---\n");
+        out.println("---ОТПРАВИТЬ ДЕНЬГИ---\n");
 
         try {
-            System.out.println("Введите номер счёта отправителя: ");
+            out.println("Введите номер счёта отправителя: ");
             Long senderAccountId = scanner.nextLong();
 
-            System.out.println("Введите номер счёта получателя: ");
+            out.println("Введите номер счёта получателя: ");
             Long recipientAccountId = scanner.nextLong();
 
-            System.out.println("Введите сумму: ");
+            out.println("Введите сумму: ");
             BigDecimal amount = scanner.nextBigDecimal();
 
-            accountService.accountTransfer(senderAccountId, recipientAccountId, amount);
+            out.println(ResultFormatter.format(accountService.accountTransfer(senderAccountId, recipientAccountId, amount)));
         } catch (InputMismatchException e) {
-            System.out.println("Ошибка ввода. Номера счетов и сумма должны быть числами.\n");
+            out.println("Ошибка ввода. Номера счетов и сумма должны быть числами.\n");
             scanner.nextLine();
         }
-        System.out.println();
+        out.println();
     }
 
     private static void depositAccount() {
-        System.out.println("---ПОПОЛНИТЬ СЧЁТ---\n");
+        out.println("---ПОПОЛНИТЬ СЧЁТ---\n");
         try {
-            System.out.println("Введите номер счёта для пополнения: ");
+            out.println("Введите номер счёта для пополнения: ");
             Long accountId = scanner.nextLong();
 
-            System.out.println("Введите сумму: ");
+            out.println("Введите сумму: ");
             BigDecimal amount = scanner.nextBigDecimal();
 
-            accountService.accountDeposit(accountId, amount);
+            out.println(ResultFormatter.format(accountService.accountDeposit(accountId, amount)));
         } catch (InputMismatchException e) {
-            System.out.println("Ошибка ввода. Номер счёта и сумма должны быть числами.\n");
+            out.println("Ошибка ввода. Номер счёта и сумма должны быть числами.\n");
             scanner.nextLine();
         }
-        System.out.println();
+        out.println();
     }
 
     private static void closeAccount() {
-        System.out.println("---ЗАКРЫТИЕ СЧЁТА---\n");
+        out.println("---ЗАКРЫТИЕ СЧЁТА---\n");
         try {
-            System.out.println("Введите номер счёта: ");
+            out.println("Введите номер счёта: ");
             Long accountId = scanner.nextLong();
-            accountService.closeAccount(accountId);
+            out.println(ResultFormatter.format(accountService.closeAccount(accountId)));
         } catch (InputMismatchException e) {
-            System.out.println("Ошибка ввода. Номер счёта должен быть числом.\n");
+            out.println("Ошибка ввода. Номер счёта должен быть числом.\n");
             scanner.nextLine();
         }
-        System.out.println();
+        out.println();
     }
 
     private static void createAccount() {
-        System.out.println("---СОЗДАНИЕ СЧЁТА---\n");
+        out.println("---СОЗДАНИЕ СЧЁТА---\n");
         try {
-            System.out.println("Введите ID пользователя: ");
+            out.println("Введите ID пользователя: ");
             Long id = scanner.nextLong();
-            accountService.createAccount(id);
+            out.println(ResultFormatter.format(accountService.createAccount(id)));
         } catch (InputMismatchException e) {
-            System.out.println("Ошибка ввода. ID пользователя должен быть числом.\n");
+            out.println("Ошибка ввода. ID пользователя должен быть числом.\n");
             scanner.nextLine();
         }
-        System.out.println();
+        out.println();
     }
 
     private static void showAllUsers() {
-        System.out.println("---ВЫВОД ВСЕХ ПОЛЬЗОВАТЕЛЕЙ---\n");
-        userService.showAllUsers();
-        System.out.println();
+        out.println("---ВЫВОД ВСЕХ ПОЛЬЗОВАТЕЛЕЙ---\n");
+        Page<UserView> page = userService.getUsers(null);
+        if (page.getItems().isEmpty()) {
+            out.println("Пользователи не найдены");
+        } else {
+            out.println("Список всех пользователей:");
+            printUsers(page);
+            while (page.hasNext()) {
+                page = userService.getUsers(page.getNextCursor());
+                printUsers(page);
+            }
+        }
+        out.println();
+    }
+
+    private static void printUsers(Page<UserView> page) {
+        for (UserView user : page.getItems()) {
+            out.printf("ID: %d, Логин: %s%n", user.getId(), user.getLogin());
+            for (AccountView account : user.getAccounts()) {
+                out.printf("  Счёт ID: %d, Баланс: %.2f, Закрыт: %s%n",
+                        account.getId(),
+                        account.getBalance(),
+                        account.isClosed() ? "Да" : "Нет");
+            }
+        }
     }
 
     private static void createUser() {
-        System.out.println("---СОЗДАНИЕ ПОЛЬЗОВАТЕЛЯ---\n");
-        System.out.println("Введите логин: ");
+        out.println("---СОЗДАНИЕ ПОЛЬЗОВАТЕЛЯ---\n");
+        out.println("Введите логин: ");
         String login = scanner.nextLine().trim();
         if (login.isEmpty()) {
-            System.out.println("Логин не может быть пустым.\n");
+            out.println("Логин не может быть пустым.\n");
             return;
         }
-        userService.createUser(login);
-        System.out.println();
+        out.println(ResultFormatter.format(userService.createUser(login)));
+        out.println();
     }
 
 
     private static int getChoice() {
-        System.out.print("Введите номер команды: ");
+        out.print("Введите номер команды: ");
         int choice = scanner.nextInt();
-        System.out.println("-------------------------------\n");
+        out.println("-------------------------------\n");
         scanner.nextLine();
         return choice;
     }
 
     private static void showMenu() {
-        System.out.println("------------МЕНЮ------------");
-        System.out.println("1. Создать пользователя.");
-        System.out.println("2. Вывести всех пользователей.");
-        System.out.println("3. Создать счёт.");
-        System.out.println("4. Закрыть счёт");
-        System.out.println("5. Внести деньги на счёт");
-        System.out.println("6. Отправить деньги");
-        System.out.println("7. Снять деньги");
-        System.out.println("8. Вывести все транзакции.");
-        System.out.println("9. Выход");
-        System.out.println("-------------------------------");
+        out.println("------------МЕНЮ------------");
+        out.println("1. Создать пользователя.");
+        out.println("2. Вывести всех пользователей.");
+        out.println("3. Создать счёт.");
+        out.println("4. Закрыть счёт");
+        out.println("5. Внести деньги на счёт");
+        out.println("6. Отправить деньги");
+        out.println("7. Снять деньги");
+        out.println("8. Вывести все транзакции.");
+        out.println("9. Поиск транзакций.");
+        out.println("10. Экспорт транзакций в файл.");
+        out.println("11. Сверка балансов с журналом.");
+        out.println("12. Отчёт по дням.");
+        out.println("13. Выписка по счёту.");
+        out.println("14. Статистика.");
+        out.println("0. Выход");
+        out.println("-------------------------------");
     }
 }
\ No newline at end of file
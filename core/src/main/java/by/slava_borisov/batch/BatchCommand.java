@@ -0,0 +1,81 @@
+package by.slava_borisov.batch;
+
+import by.slava_borisov.money.Money;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разобранная строка пакетного файла.
+ */
+@Value
+public class BatchCommand {
+
+    long lineNumber;
+    String line;
+    BatchOperation operation;
+    String login;
+    Long firstId;
+    Long secondId;
+
+    /**
+     * Сумма разбирается сразу в копейки, в {@code BigDecimal} она переводится только при записи в базу.
+     */
+    Money amount;
+
+    /**
+     * Разбирает строку файла. Пустые строки и комментарии с {@code #} пропускаются.
+     *
+     * @return команда или {@code null}, если строка не содержит операции
+     * @throws IllegalArgumentException если строка не соответствует формату операции
+     */
+    public static BatchCommand parse(long lineNumber, String line) {
+        List<String> tokens = tokens(line);
+        if (tokens.isEmpty() || tokens.get(0).startsWith("#")) {
+            return null;
+        }
+        BatchOperation operation = BatchOperation.of(tokens.get(0));
+        int expected = switch (operation) {
+            case USER, ACCOUNT, CLOSE -> 2;
+            case DEPOSIT, WITHDRAW -> 3;
+            case TRANSFER -> 4;
+        };
+        if (tokens.size() != expected) {
+            throw new IllegalArgumentException("Ожидается: " + operation.getUsage());
+        }
+        try {
+            return switch (operation) {
+                case USER -> new BatchCommand(lineNumber, line, operation, tokens.get(1), null, null, null);
+                case ACCOUNT, CLOSE -> new BatchCommand(lineNumber, line, operation, null,
+                        Long.parseLong(tokens.get(1)), null, null);
+                case DEPOSIT, WITHDRAW -> new BatchCommand(lineNumber, line, operation, null,
+                        Long.parseLong(tokens.get(1)), null, Money.parse(tokens.get(2)));
+                case TRANSFER -> new BatchCommand(lineNumber, line, operation, null,
+                        Long.parseLong(tokens.get(1)), Long.parseLong(tokens.get(2)), Money.parse(tokens.get(3)));
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Номера и сумма должны быть числами, сумма — не точнее копейки. "
+                    + "Ожидается: " + operation.getUsage());
+        }
+    }
+
+    private static List<String> tokens(String line) {
+        List<String> tokens = new ArrayList<>(4);
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+}
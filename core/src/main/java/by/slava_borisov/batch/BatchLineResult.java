@@ -0,0 +1,16 @@
+package by.slava_borisov.batch;
+
+import lombok.Value;
+
+@Value
+public class BatchLineResult {
+
+    long lineNumber;
+    String line;
+    boolean success;
+
+    /**
+     * Причина отказа или {@code null} для выполненной строки.
+     */
+    String error;
+}
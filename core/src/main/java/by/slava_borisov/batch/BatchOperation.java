@@ -0,0 +1,38 @@
+package by.slava_borisov.batch;
+
+/**
+ * Операции пакетного файла. Ключевое слово открывает строку, за ним идут аргументы через пробел.
+ */
+public enum BatchOperation {
+    USER("user", "<логин>"),
+    ACCOUNT("account", "<id пользователя>"),
+    CLOSE("close", "<id счёта>"),
+    DEPOSIT("deposit", "<id счёта> <сумма>"),
+    WITHDRAW("withdraw", "<id счёта> <сумма>"),
+    TRANSFER("transfer", "<id отправителя> <id получателя> <сумма>");
+
+    private final String keyword;
+    private final String usage;
+
+    BatchOperation(String keyword, String usage) {
+        this.keyword = keyword;
+        this.usage = usage;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public String getUsage() {
+        return keyword + " " + usage;
+    }
+
+    static BatchOperation of(String keyword) {
+        for (BatchOperation operation : values()) {
+            if (operation.keyword.equalsIgnoreCase(keyword)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная операция: " + keyword);
+    }
+}
@@ -0,0 +1,261 @@
+package by.slava_borisov.batch;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.engine.AccountOperation;
+import by.slava_borisov.engine.AccountOperationEngine;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.util.TransactionHelper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Выполняет операции из пакетного файла без диалога с пользователем.
+ * <p>
+ * Файл читается потоком, строки выполняются порциями по {@code bank.batch.chunk-size}
+ * в одной транзакции на порцию. Если порция откатилась из-за ошибки, её строки
+ * выполняются заново по одной, чтобы ошибка затронула только свою строку; в метриках
+ * операций учитываются только строки зафиксированной порции или повторного выполнения.
+ * <p>
+ * С {@code bank.batch.parallel=true} пополнения, снятия и переводы порции выполняются
+ * параллельно через {@link AccountOperationEngine}, каждая в своей транзакции: операции над
+ * одним счётом сохраняют порядок файла. Создание пользователя и счёта и закрытие счёта
+ * выполняются после завершения всех поданных до них операций.
+ * <p>
+ * Отклонённые строки пишутся в файл отказов вместе с причиной в комментарии,
+ * поэтому его можно исправить и запустить повторно.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class BatchProcessor {
+
+    private final TransactionHelper transactionHelper;
+    private final AccountDao accountDao;
+    private final UserDao userDao;
+    private final OperationMetrics operationMetrics;
+    private final AccountOperationEngine engine;
+
+    @Value("${bank.batch.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${bank.batch.parallel:false}")
+    private boolean parallel;
+
+    public BatchProcessor(TransactionHelper transactionHelper, AccountDao accountDao, UserDao userDao,
+                          OperationMetrics operationMetrics, AccountOperationEngine engine) {
+        this.transactionHelper = transactionHelper;
+        this.accountDao = accountDao;
+        this.userDao = userDao;
+        this.operationMetrics = operationMetrics;
+        this.engine = engine;
+    }
+
+    public BatchReport run(Path input, Path rejectFile, Consumer<BatchLineResult> listener) {
+        if (input.toAbsolutePath().normalize().equals(rejectFile.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Файл отказов не может совпадать с входным файлом");
+        }
+        long started = System.nanoTime();
+        try {
+            // отказы прошлого запуска не должны смешиваться с новыми
+            Files.deleteIfExists(rejectFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить файл " + rejectFile, e);
+        }
+        Progress progress = new Progress(rejectFile, listener);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8); progress) {
+            List<BatchCommand> chunk = new ArrayList<>(chunkSize);
+            List<BatchLineResult> parseErrors = new ArrayList<>();
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                try {
+                    BatchCommand command = BatchCommand.parse(lineNumber, line);
+                    if (command != null) {
+                        chunk.add(command);
+                    }
+                } catch (IllegalArgumentException e) {
+                    parseErrors.add(new BatchLineResult(lineNumber, line, false, e.getMessage()));
+                }
+                if (chunk.size() == chunkSize) {
+                    progress.report(runChunk(chunk, progress), parseErrors);
+                    chunk.clear();
+                    parseErrors.clear();
+                }
+            }
+            progress.report(chunk.isEmpty() ? List.of() : runChunk(chunk, progress), parseErrors);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось обработать файл " + input, e);
+        }
+        return new BatchReport(progress.succeeded, progress.rejected, progress.chunks, progress.replayedChunks,
+                progress.rejected > 0 ? rejectFile : null, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private List<BatchLineResult> runChunk(List<BatchCommand> chunk, Progress progress) {
+        progress.chunks++;
+        if (parallel) {
+            return runInParallel(chunk);
+        }
+        try {
+            return operationMetrics.recordIfCompleted(() -> transactionHelper.executeInTransaction(session -> {
+                List<BatchLineResult> results = new ArrayList<>(chunk.size());
+                for (BatchCommand command : chunk) {
+                    results.add(result(command, execute(command)));
+                }
+                return results;
+            }));
+        } catch (RuntimeException e) {
+            progress.replayedChunks++;
+            List<BatchLineResult> results = new ArrayList<>(chunk.size());
+            for (BatchCommand command : chunk) {
+                results.add(executeLine(command));
+            }
+            return results;
+        }
+    }
+
+    private List<BatchLineResult> runInParallel(List<BatchCommand> chunk) {
+        List<CompletableFuture<BatchLineResult>> lines = new ArrayList<>(chunk.size());
+        for (BatchCommand command : chunk) {
+            AccountOperation operation = accountOperation(command);
+            if (operation != null) {
+                lines.add(engine.submit(operation).handle((result, error) -> error == null
+                        ? result(command, result)
+                        : failed(command, error)));
+            } else {
+                // строки ниже могут ссылаться на создаваемые здесь счета, а закрытие затрагивает чужую полосу
+                CompletableFuture.allOf(lines.toArray(CompletableFuture[]::new)).join();
+                lines.add(CompletableFuture.completedFuture(executeLine(command)));
+            }
+        }
+        List<BatchLineResult> results = new ArrayList<>(lines.size());
+        for (CompletableFuture<BatchLineResult> line : lines) {
+            results.add(line.join());
+        }
+        return results;
+    }
+
+    private BatchLineResult executeLine(BatchCommand command) {
+        try {
+            return result(command, execute(command));
+        } catch (RuntimeException e) {
+            return failed(command, e);
+        }
+    }
+
+    /**
+     * @return операция для {@link AccountOperationEngine} или {@code null}, если строку нужно выполнить по порядку
+     */
+    private static AccountOperation accountOperation(BatchCommand command) {
+        return switch (command.getOperation()) {
+            case DEPOSIT -> AccountOperation.deposit(command.getFirstId(), command.getAmount().toBigDecimal());
+            case WITHDRAW -> AccountOperation.withdraw(command.getFirstId(), command.getAmount().toBigDecimal());
+            case TRANSFER -> AccountOperation.transfer(command.getFirstId(), command.getSecondId(),
+                    command.getAmount().toBigDecimal());
+            case USER, ACCOUNT, CLOSE -> null;
+        };
+    }
+
+    private OperationResult execute(BatchCommand command) {
+        return switch (command.getOperation()) {
+            case USER -> userDao.addUser(command.getLogin());
+            case ACCOUNT -> accountDao.createAccount(command.getFirstId());
+            case CLOSE -> accountDao.closeAccount(command.getFirstId());
+            case DEPOSIT -> accountDao.deposit(command.getFirstId(), command.getAmount().toBigDecimal());
+            case WITHDRAW -> accountDao.withdraw(command.getFirstId(), command.getAmount().toBigDecimal());
+            case TRANSFER -> accountDao.transfer(command.getFirstId(), command.getSecondId(),
+                    command.getAmount().toBigDecimal());
+        };
+    }
+
+    private static BatchLineResult result(BatchCommand command, OperationResult result) {
+        return new BatchLineResult(command.getLineNumber(), command.getLine(), result.isSuccess(),
+                result.isSuccess() ? null : "Операция отклонена: " + result.getFailure().getTitle());
+    }
+
+    private static BatchLineResult failed(BatchCommand command, Throwable e) {
+        return new BatchLineResult(command.getLineNumber(), command.getLine(), false, rootMessage(e));
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        String message = root.getMessage();
+        if (message == null) {
+            return root.getClass().getSimpleName();
+        }
+        // драйверы дописывают в сообщение текст запроса с новой строки; в файле отказов нужна одна строка
+        int lineBreak = message.indexOf('\n');
+        return (lineBreak < 0 ? message : message.substring(0, lineBreak)).trim();
+    }
+
+    /**
+     * Считает итоги, передаёт результаты строк по порядку и пишет отказы в файл.
+     */
+    private static final class Progress implements AutoCloseable {
+
+        private final Path rejectFile;
+        private final Consumer<BatchLineResult> listener;
+        private BufferedWriter rejects;
+
+        long succeeded;
+        long rejected;
+        long chunks;
+        long replayedChunks;
+
+        Progress(Path rejectFile, Consumer<BatchLineResult> listener) {
+            this.rejectFile = rejectFile;
+            this.listener = listener;
+        }
+
+        void report(List<BatchLineResult> executed, List<BatchLineResult> parseErrors) throws IOException {
+            int i = 0;
+            int j = 0;
+            while (i < executed.size() || j < parseErrors.size()) {
+                boolean takeExecuted = j == parseErrors.size() || (i < executed.size()
+                        && executed.get(i).getLineNumber() < parseErrors.get(j).getLineNumber());
+                accept(takeExecuted ? executed.get(i++) : parseErrors.get(j++));
+            }
+        }
+
+        private void accept(BatchLineResult result) throws IOException {
+            if (result.isSuccess()) {
+                succeeded++;
+            } else {
+                rejected++;
+                if (rejects == null) {
+                    rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+                }
+                rejects.write("# строка " + result.getLineNumber() + ": " + result.getError());
+                rejects.newLine();
+                rejects.write(result.getLine());
+                rejects.newLine();
+            }
+            listener.accept(result);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+    }
+}
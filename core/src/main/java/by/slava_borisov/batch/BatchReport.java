@@ -0,0 +1,28 @@
+package by.slava_borisov.batch;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+
+@Value
+public class BatchReport {
+
+    long succeeded;
+    long rejected;
+    long chunks;
+
+    /**
+     * Порции, которые откатились целиком и были выполнены заново построчно.
+     */
+    long replayedChunks;
+    Path rejectFile;
+    long elapsedMillis;
+
+    public long getLines() {
+        return succeeded + rejected;
+    }
+
+    public double getLinesPerSecond() {
+        return elapsedMillis == 0 ? getLines() : getLines() * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,103 @@
+package by.slava_borisov.cache;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.hibernate.entity.Account;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Кэш счетов в памяти процесса перед {@code AccountDao}.
+ * <p>
+ * Записи вытесняются по размеру и по времени с момента загрузки. Изменяющие операции
+ * сбрасывают запись после фиксации своей транзакции. Загрузка и сброс одного ключа
+ * не пересекаются, поэтому значение, прочитанное до фиксации, в кэше не задерживается.
+ * Наружу отдаются копии, чтобы изменения вызывающего кода не попадали в кэш.
+ * С {@code bank.cache.accounts.enabled=false} каждое чтение идёт в базу.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class AccountCache {
+
+    private final Cache<Long, Account> cache;
+
+    public AccountCache(@Value("${bank.cache.accounts.enabled:true}") boolean enabled,
+                        @Value("${bank.cache.accounts.maximum-size:10000}") long maximumSize,
+                        @Value("${bank.cache.accounts.expire-after-write-ms:60000}") long expireAfterWriteMillis) {
+        this.cache = enabled
+                ? Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build()
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public Account get(Long accountId, Function<Long, Account> loader) {
+        if (cache == null) {
+            return loader.apply(accountId);
+        }
+        Account account = cache.get(accountId, loader);
+        return account != null ? copyOf(account) : null;
+    }
+
+    public void invalidate(Long accountId) {
+        if (cache != null) {
+            cache.invalidate(accountId);
+        }
+    }
+
+    public long getHitCount() {
+        return stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return stats().evictionCount();
+    }
+
+    public double getHitRate() {
+        return stats().hitRate();
+    }
+
+    public long getSize() {
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (cache == null) {
+            return "Кэш счетов выключен";
+        }
+        return String.format("Кэш счетов: записей %d, попаданий %d, промахов %d (%.1f%%), вытеснено %d",
+                getSize(), getHitCount(), getMissCount(), getHitRate() * 100, getEvictionCount());
+    }
+
+    private CacheStats stats() {
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    private static Account copyOf(Account account) {
+        return Account.builder()
+                .id(account.getId())
+                .balance(account.getBalance())
+                .isClosed(account.isClosed())
+                .createdAt(account.getCreatedAt())
+                .user(account.getUser())
+                .version(account.getVersion())
+                .build();
+    }
+}
@@ -1,43 +1,210 @@
 package by.slava_borisov.config;
 
 import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.AccountSnapshot;
+import by.slava_borisov.hibernate.entity.DailyAccountTotal;
+import by.slava_borisov.hibernate.entity.LedgerRollup;
 import by.slava_borisov.hibernate.entity.Transaction;
 import by.slava_borisov.hibernate.entity.User;
+import by.slava_borisov.metrics.ConnectionPoolMetrics;
+import by.slava_borisov.metrics.TransactionStatistics;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.flywaydb.core.Flyway;
 import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.sql.DataSource;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+
+@Profile(Profiles.DATABASE)
 @Configuration
-@PropertySource("classpath:application.properties")
 public class MainConfiguration {
 
     @Autowired
     private  Environment env;
 
     @Bean
-    public  SessionFactory getSessionFactory() {
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(ConnectionPoolMetrics connectionPoolMetrics) {
+        HikariConfig config = new HikariConfig();
+
+        config.setDriverClassName(env.getProperty("db.driver"));
+        config.setJdbcUrl(env.getProperty("db.url"));
+        config.setUsername(env.getProperty("db.username"));
+        config.setPassword(env.getProperty("db.password"));
+        config.setAutoCommit(false);
+
+        config.setPoolName(env.getProperty("db.pool.name", "bank-pool"));
+        config.setMaximumPoolSize(env.getProperty("db.pool.maximum-size", Integer.class, 10));
+        config.setMinimumIdle(env.getProperty("db.pool.minimum-idle", Integer.class, 2));
+        config.setConnectionTimeout(env.getProperty("db.pool.connection-timeout-ms", Long.class, 30_000L));
+        config.setIdleTimeout(env.getProperty("db.pool.idle-timeout-ms", Long.class, 600_000L));
+        config.setMaxLifetime(env.getProperty("db.pool.max-lifetime-ms", Long.class, 1_800_000L));
+        config.setLeakDetectionThreshold(env.getProperty("db.pool.leak-detection-threshold-ms", Long.class, 0L));
+        config.setRegisterMbeans(env.getProperty("db.pool.register-mbeans", Boolean.class, true));
+        config.setMetricsTrackerFactory(connectionPoolMetrics);
+
+        int statementCacheSize = env.getProperty("db.pool.statement-cache-size", Integer.class, 256);
+        if ("org.postgresql.Driver".equals(config.getDriverClassName())) {
+            config.addDataSourceProperty("preparedStatementCacheQueries", statementCacheSize);
+            config.addDataSourceProperty("prepareThreshold",
+                    env.getProperty("db.pool.prepare-threshold", Integer.class, 5));
+        }
+
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Схема базы ведётся версионными миграциями из {@code db/migration}: общие скрипты лежат
+     * в {@code common}, скрипты под конкретную СУБД — в каталоге с её именем.
+     */
+    @Bean
+    public Flyway flyway(DataSource dataSource) {
+        String vendor = env.getProperty("db.migration.vendor", vendorOf(env.getProperty("db.url")));
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/" + vendor)
+                .baselineOnMigrate(env.getProperty("db.migration.baseline-on-migrate", Boolean.class, true))
+                .baselineVersion("1")
+                .load();
+        if (env.getProperty("db.migration.enabled", Boolean.class, true)) {
+            flyway.migrate();
+        }
+        return flyway;
+    }
+
+    /**
+     * Области кэша второго уровня Hibernate в локальном JCache на Caffeine. Размер и время жизни
+     * областей пользователей и запроса по логину берутся из {@code bank.cache.*}; область меток
+     * обновления таблиц не вытесняется, иначе кэш запросов мог бы вернуть устаревший результат.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // у каждого контекста свой менеджер, чтобы области не делились между контекстами в одном процессе
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("bank-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        CaffeineConfiguration<Object, Object> users = region(
+                env.getProperty("bank.cache.users.maximum-size", Long.class, 10_000L),
+                env.getProperty("bank.cache.users.expire-after-write-ms", Long.class, 3_600_000L));
+        cacheManager.createCache(User.CACHE_REGION, users);
+        cacheManager.createCache(User.ACCOUNTS_CACHE_REGION, users);
+
+        CaffeineConfiguration<Object, Object> queries = region(
+                env.getProperty("bank.cache.user-queries.maximum-size", Long.class, 10_000L),
+                env.getProperty("bank.cache.user-queries.expire-after-write-ms", Long.class, 600_000L));
+        cacheManager.createCache(User.LOGIN_QUERY_CACHE_REGION, queries);
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queries);
+
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    /**
+     * В режиме статистики Hibernate получает соединения через прокси, который пишет запросы дольше
+     * {@code bank.statistics.slow-query-ms} вместе с параметрами в журнал {@code by.slava_borisov.slow-query}.
+     */
+    @Bean
+    public  SessionFactory getSessionFactory(DataSource dataSource, Flyway flyway, CacheManager cacheManager,
+                                             TransactionStatistics transactionStatistics) {
         org.hibernate.cfg.Configuration configuration = new org.hibernate.cfg.Configuration();
 
-        configuration.setProperty("hibernate.connection.driver_class", env.getProperty("db.driver"));
-        configuration.setProperty("hibernate.connection.url", env.getProperty("db.url"));
-        configuration.setProperty("hibernate.connection.username",env.getProperty("db.username"));
-        configuration.setProperty("hibernate.connection.password", env.getProperty("db.password"));
+        boolean statistics = transactionStatistics.isEnabled();
+        configuration.getProperties().put("hibernate.connection.datasource", statistics
+                ? ProxyDataSourceBuilder.create(dataSource)
+                .name("slow-query")
+                .logSlowQueryBySlf4j(env.getProperty("bank.statistics.slow-query-ms", Long.class, 200L),
+                        TimeUnit.MILLISECONDS, SLF4JLogLevel.WARN, "by.slava_borisov.slow-query")
+                .build()
+                : dataSource);
+        configuration.setProperty("hibernate.connection.provider_disables_autocommit", "true");
 
+        // вывод каждого запроса в консоль дорог, включается только явно
         configuration.setProperty("hibernate.show_sql", env.getProperty("hibernate.show_sql",
-                "true"));
+                "false"));
         configuration.setProperty("hibernate.format_sql", env.getProperty("hibernate.format_sql",
-                "true"));
+                "false"));
         configuration.setProperty("hibernate.hbm2ddl.auto", env.getProperty("hibernate.hbm2ddl.auto",
-                "update"));
+                "validate"));
+        configuration.setProperty("hibernate.generate_statistics", statistics ? "true"
+                : env.getProperty("hibernate.generate_statistics", "false"));
+
+        configuration.setProperty("hibernate.jdbc.batch_size", env.getProperty("hibernate.jdbc.batch_size",
+                "50"));
+        configuration.setProperty("hibernate.order_inserts", env.getProperty("hibernate.order_inserts",
+                "true"));
+        configuration.setProperty("hibernate.order_updates", env.getProperty("hibernate.order_updates",
+                "true"));
+        configuration.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+        configuration.setProperty("hibernate.id.optimizer.pooled.preferred",
+                env.getProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo"));
+
+        boolean secondLevelCache = env.getProperty("hibernate.cache.use_second_level_cache", Boolean.class, true);
+        configuration.setProperty("hibernate.cache.use_second_level_cache", String.valueOf(secondLevelCache));
+        if (secondLevelCache) {
+            configuration.setProperty("hibernate.cache.use_query_cache", env.getProperty("hibernate.cache.use_query_cache",
+                    "true"));
+            configuration.setProperty("hibernate.cache.region.factory_class", "jcache");
+            configuration.getProperties().put("hibernate.javax.cache.cache_manager", cacheManager);
+            configuration.setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
+            // счёт ссылается на владельца с обратной стороны, кэш коллекции User.accounts сам не узнает о новом счёте
+            configuration.setProperty("hibernate.cache.auto_evict_collection_cache", "true");
+        }
 
         configuration.addAnnotatedClass(Account.class);
         configuration.addAnnotatedClass(User.class);
         configuration.addAnnotatedClass(Transaction.class);
+        configuration.addAnnotatedClass(AccountSnapshot.class);
+        configuration.addAnnotatedClass(DailyAccountTotal.class);
+        configuration.addAnnotatedClass(LedgerRollup.class);
+
+        SessionFactory sessionFactory = configuration.buildSessionFactory();
+        if (statistics) {
+            sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                    .requireService(EventListenerRegistry.class)
+                    .appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event ->
+                            transactionStatistics.entityLoaded());
+        }
+        return sessionFactory;
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, long expireAfterWriteMillis) {
+        CaffeineConfiguration<Object, Object> region = new CaffeineConfiguration<>();
+        region.setMaximumSize(OptionalLong.of(maximumSize));
+        region.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis)));
+        return region;
+    }
 
-        return configuration.buildSessionFactory();
+    private static String vendorOf(String url) {
+        if (url == null || !url.startsWith("jdbc:")) {
+            throw new IllegalStateException("Не удалось определить СУБД по адресу " + url);
+        }
+        int end = url.indexOf(':', "jdbc:".length());
+        return url.substring("jdbc:".length(), end);
     }
 }
@@ -0,0 +1,18 @@
+package by.slava_borisov.config;
+
+/**
+ * Профили Spring. По умолчанию банк работает с базой данных; профиль {@link #IN_MEMORY}
+ * держит счета в памяти процесса с журналом упреждающей записи и базу не поднимает.
+ */
+public final class Profiles {
+
+    public static final String IN_MEMORY = "in-memory";
+
+    /**
+     * Компоненты, которым нужна база: активны во всех профилях, кроме {@link #IN_MEMORY}.
+     */
+    public static final String DATABASE = "!" + IN_MEMORY;
+
+    private Profiles() {
+    }
+}
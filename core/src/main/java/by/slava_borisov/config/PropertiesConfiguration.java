@@ -0,0 +1,12 @@
+package by.slava_borisov.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Настройки приложения, общие для всех профилей.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+public class PropertiesConfiguration {
+}
@@ -1,43 +1,105 @@
 package by.slava_borisov.dao;
 
+import by.slava_borisov.cache.AccountCache;
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
 import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.Transaction;
 import by.slava_borisov.hibernate.entity.TransactionType;
 import by.slava_borisov.hibernate.entity.User;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.money.FeeRate;
+import by.slava_borisov.money.Money;
+import by.slava_borisov.util.GroupCommitter;
 import by.slava_borisov.util.TransactionHelper;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
 
+@Profile(Profiles.DATABASE)
 @Component
 public class AccountDao {
 
+    private static final int LOCK_CHUNK_SIZE = 1000;
+
     private final TransactionHelper transactionHelper;
     private final UserDao userDao;
     private final TransactionDao transactionDao;
+    private final GroupCommitter groupCommitter;
+    private final AccountCache accountCache;
+    private final OperationMetrics operationMetrics;
 
     @Value("${bank.default.balance}")
     private BigDecimal defaultBalance;
-    @Value("${bank.fee}")
-    private BigDecimal fee;
-
-    public AccountDao(TransactionHelper transactionHelper, UserDao userDao, TransactionDao transactionDao) {
+    @Value("${bank.concurrency.mode:PESSIMISTIC}")
+    private ConcurrencyMode concurrencyMode;
+    @Value("${bank.concurrency.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${bank.balance.atomic-updates:false}")
+    private boolean atomicUpdates;
+    @Value("${bank.bulk.failure-policy:ALL_OR_NOTHING}")
+    private TransferFailurePolicy failurePolicy;
+    @Value("${hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+    private FeeRate feeRate;
+
+    public AccountDao(TransactionHelper transactionHelper, UserDao userDao, TransactionDao transactionDao,
+                      GroupCommitter groupCommitter, AccountCache accountCache, OperationMetrics operationMetrics) {
         this.transactionHelper = transactionHelper;
         this.userDao = userDao;
         this.transactionDao = transactionDao;
+        this.groupCommitter = groupCommitter;
+        this.accountCache = accountCache;
+        this.operationMetrics = operationMetrics;
     }
 
+    /**
+     * Ставка {@code bank.fee} разбирается один раз, а не при каждом переводе.
+     */
+    @Value("${bank.fee}")
+    void setFee(BigDecimal fee) {
+        this.feeRate = FeeRate.of(fee);
+    }
 
+    /**
+     * Счёт с владельцем. Вне транзакции читается через кэш счетов, внутри — всегда из сессии.
+     */
     public Account getAccountById(Long id) {
+        if (transactionHelper.isTransactionActive()) {
+            return loadAccount(id);
+        }
+        return accountCache.get(id, this::loadAccount);
+    }
+
+    private Account loadAccount(Long id) {
         return transactionHelper.executeInTransaction(session -> {
-            return session.find(Account.class, id);
+            // счёт уходит за пределы сессии, поэтому владелец загружается сразу
+            return session.find(Account.class, id,
+                    Map.of("jakarta.persistence.fetchgraph", session.getEntityGraph(Account.WITH_USER)));
         });
     }
 
-    public boolean createAccount(Long id) {
-        return transactionHelper.executeInTransaction(session -> {
+    public OperationResult createAccount(Long id) {
+        OperationResult result = request(Operation.CREATE_ACCOUNT, null, null, null).withUserId(id);
+        return operationMetrics.time(Operation.CREATE_ACCOUNT, () -> transactionHelper.executeInTransaction(session -> {
             User user = userDao.getUserById(id);
             if (user != null) {
                 Account account = Account.builder()
@@ -50,35 +112,48 @@ public class AccountDao {
 
                 transactionDao.createTransaction(TransactionType.ACCOUNT_CREATED, defaultBalance, account.getId());
 
-                return true;
+                return result.withAccountId(account.getId()).withAmount(defaultBalance);
             } else {
-                return false;
+                return rejected(result, FailureReason.USER_NOT_FOUND);
             }
-        });
+        }), OperationResult::isSuccess);
     }
 
-    public boolean closeAccount(Long accountId) {
-        return transactionHelper.executeInTransaction(session -> {
-            Account account = session.find(Account.class, accountId);
+    public OperationResult closeAccount(Long accountId) {
+        OperationResult result = request(Operation.CLOSE_ACCOUNT, accountId, null, null);
+        return operationMetrics.time(Operation.CLOSE_ACCOUNT, () -> transactionHelper.executeWithRetry(maxAttempts,
+                session -> {
+            Long userId = session.createQuery(
+                            "SELECT a.user.id FROM Account a WHERE a.id = :id", Long.class)
+                    .setParameter("id", accountId)
+                    .uniqueResult();
+            if (userId == null) {
+                return rejected(result, FailureReason.ACCOUNT_NOT_FOUND);
+            }
+
+            List<Account> userAccounts = session.createQuery(
+                            "SELECT a FROM Account a WHERE a.user.id = :userId ORDER BY a.id", Account.class)
+                    .setParameter("userId", userId)
+                    .setLockMode(lockMode())
+                    .getResultList();
+
+            Account account = userAccounts.stream()
+                    .filter(acc -> acc.getId().equals(accountId))
+                    .findFirst()
+                    .orElse(null);
             if (account == null) {
-                System.out.println("Счёт с ID " + accountId + " не найден.");
-                return false;
+                return rejected(result, FailureReason.ACCOUNT_NOT_FOUND);
             }
             if (account.isClosed()) {
-                System.out.println("Счёт уже закрыт.");
-                return false;
+                return rejected(result, FailureReason.ACCOUNT_CLOSED);
             }
 
-            User user = account.getUser();
-
-            List<Account> activeAccounts = session.createQuery(
-                            "SELECT a FROM Account a WHERE a.user = :user AND a.isClosed = false")
-                    .setParameter("user", user)
-                    .getResultList();
+            List<Account> activeAccounts = userAccounts.stream()
+                    .filter(acc -> !acc.isClosed())
+                    .toList();
 
             if (activeAccounts.size() == 1) {
-                System.out.println("Нельзя закрыть единственный счёт пользователя");
-                return false;
+                return rejected(result, FailureReason.LAST_ACTIVE_ACCOUNT);
             }
 
             Account targetAccount = activeAccounts.stream()
@@ -90,110 +165,406 @@ public class AccountDao {
             targetAccount.setBalance(targetAccount.getBalance().add(balance));
             session.merge(targetAccount);
 
+            // остаток целиком уходит на другой счёт, как и записано в журнале
+            account.setBalance(Money.ZERO.toBigDecimal());
             account.setClosed(true);
             session.merge(account);
 
             transactionDao.createTransaction(TransactionType.ACCOUNT_CLOSED, balance, account.getId(),
                     targetAccount.getId());
 
-            System.out.println(balance + " переведено на счёт " + targetAccount.getId());
-            return true;
-        });
+            evictAfterCommit(account.getId(), targetAccount.getId());
+            return result.withUserId(userId).withTargetAccountId(targetAccount.getId()).withAmount(balance);
+        }), OperationResult::isSuccess);
     }
 
-    public boolean deposit(Long accountId, BigDecimal amount) {
-        return transactionHelper.executeInTransaction(session -> {
-            Account account = session.find(Account.class, accountId);
+    public OperationResult deposit(Long accountId, BigDecimal amount) {
+        OperationResult result = request(Operation.DEPOSIT, accountId, null, amount);
+        return operationMetrics.time(Operation.DEPOSIT, () -> atomicUpdates
+                ? depositAtomically(result)
+                : depositLocked(result), OperationResult::isSuccess);
+    }
+
+    private OperationResult depositLocked(OperationResult result) {
+        Long accountId = result.getAccountId();
+        Money amount = validAmount(result.getAmount());
+        return changeBalance(Collections.singletonList(accountId), session -> {
+            Account account = findForUpdate(session, accountId);
             if (account == null || account.isClosed()) {
-                System.out.println("Данного счета не существует или счёт закрыт.");
-                return false;
+                return rejected(result,
+                        account == null ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED);
             }
-            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-                System.out.println("Сумма не может быть отрицательной.");
-                return false;
+            if (amount == null) {
+                return rejected(result, FailureReason.INVALID_AMOUNT);
             }
-            account.setBalance(account.getBalance().add(amount));
+            account.setBalance(Money.of(account.getBalance()).plus(amount).toBigDecimal());
             session.merge(account);
 
-            transactionDao.createTransaction(TransactionType.DEPOSIT, amount, accountId);
+            evictAfterCommit(accountId);
+            transactionDao.createTransaction(TransactionType.DEPOSIT, amount.toBigDecimal(), accountId);
 
-            return true;
+            return result;
         });
     }
 
-    public boolean transfer(Long senderId, Long recipientId, BigDecimal amount) {
-        return transactionHelper.executeInTransaction(session -> {
-            Account senderAccount = session.find(Account.class, senderId);
-            Account recipientAccount = session.find(Account.class, recipientId);
+    public OperationResult transfer(Long senderId, Long recipientId, BigDecimal amount) {
+        OperationResult result = request(Operation.TRANSFER, senderId, recipientId, amount);
+        List<Long> accountIds = Arrays.asList(senderId, recipientId);
+        return operationMetrics.time(Operation.TRANSFER, () -> changeBalance(accountIds, session -> {
+            // счета блокируются всегда по возрастанию ID, чтобы встречные переводы не приводили к взаимной блокировке
+            boolean senderFirst = senderId <= recipientId;
+            Account first = findForUpdate(session, senderFirst ? senderId : recipientId);
+            Account second = findForUpdate(session, senderFirst ? recipientId : senderId);
+            Account senderAccount = senderFirst ? first : second;
+            Account recipientAccount = senderFirst ? second : first;
 
             if (senderAccount == null || recipientAccount == null ||
                     senderAccount.isClosed() || recipientAccount.isClosed()) {
-                System.out.println("Данного счета не существует или счёт закрыт.");
-                return false;
+                return rejected(result, senderAccount == null || recipientAccount == null
+                        ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED);
             }
 
-            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-                System.out.println("Сумма не может быть отрицательной.");
-                return false;
+            Money transferred = validAmount(amount);
+            if (transferred == null) {
+                return rejected(result, FailureReason.INVALID_AMOUNT);
             }
 
             boolean isInterUserTransfer = !senderAccount.getUser().getId()
                     .equals(recipientAccount.getUser().getId());
 
-            BigDecimal feeAmount = isInterUserTransfer ? amount.multiply(fee) : BigDecimal.ZERO;
+            Money feeAmount = isInterUserTransfer ? feeRate.feeOf(transferred) : Money.ZERO;
+            Money debit = transferred.plus(feeAmount);
+            Money senderBalance = Money.of(senderAccount.getBalance());
 
-            if (senderAccount.getBalance().compareTo(amount.add(feeAmount)) < 0) {
-                System.out.println("Недостаточно средств на счете.");
-                return false;
+            if (senderBalance.isLessThan(debit)) {
+                return rejected(result, FailureReason.INSUFFICIENT_FUNDS);
             }
 
-            senderAccount.setBalance(senderAccount.getBalance().subtract(amount).subtract(feeAmount));
-            recipientAccount.setBalance(recipientAccount.getBalance().add(amount));
+            senderAccount.setBalance(senderBalance.minus(debit).toBigDecimal());
+            recipientAccount.setBalance(Money.of(recipientAccount.getBalance()).plus(transferred).toBigDecimal());
 
             session.merge(senderAccount);
             session.merge(recipientAccount);
 
+            evictAfterCommit(senderId, recipientId);
             transactionDao.createTransaction(TransactionType.TRANSFER, amount, senderId, recipientId);
 
-            if (feeAmount.compareTo(BigDecimal.ZERO) > 0) {
-                transactionDao.createTransaction(TransactionType.FEE, feeAmount, senderId);
-                System.out.printf("Комиссия составила: %s%n", feeAmount);
+            if (feeAmount.isPositive()) {
+                transactionDao.createTransaction(TransactionType.FEE, feeAmount.toBigDecimal(), senderId);
             }
 
-            return true;
-        });
+            return result.withFee(feeAmount.toBigDecimal());
+        }), OperationResult::isSuccess);
     }
 
-    public boolean withdraw(Long accountId, BigDecimal amount) {
-        return transactionHelper.executeInTransaction(session -> {
-            Account account = session.find(Account.class, accountId);
+    public OperationResult withdraw(Long accountId, BigDecimal amount) {
+        OperationResult result = request(Operation.WITHDRAW, accountId, null, amount);
+        return operationMetrics.time(Operation.WITHDRAW, () -> atomicUpdates
+                ? withdrawAtomically(result)
+                : withdrawLocked(result), OperationResult::isSuccess);
+    }
+
+    private OperationResult withdrawLocked(OperationResult result) {
+        Long accountId = result.getAccountId();
+        Money amount = validAmount(result.getAmount());
+        return changeBalance(Collections.singletonList(accountId), session -> {
+            Account account = findForUpdate(session, accountId);
 
             if (account == null) {
-                System.out.println("Данного счета не существует.");
-                return false;
+                return rejected(result, FailureReason.ACCOUNT_NOT_FOUND);
             }
 
-            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-                System.out.println("Сумма не может быть отрицательной.");
-                return false;
+            if (amount == null) {
+                return rejected(result, FailureReason.INVALID_AMOUNT);
             }
 
             if (account.isClosed()) {
-                System.out.printf("Cчёт %d закрыт.%n", accountId);
-                return false;
+                return rejected(result, FailureReason.ACCOUNT_CLOSED);
             }
 
-            if (account.getBalance().compareTo(amount) < 0) {
-                System.out.println("Не достаточно средств");
-                return false;
+            Money balance = Money.of(account.getBalance());
+            if (balance.isLessThan(amount)) {
+                return rejected(result, FailureReason.INSUFFICIENT_FUNDS);
             }
 
-            account.setBalance(account.getBalance().subtract(amount));
+            account.setBalance(balance.minus(amount).toBigDecimal());
             session.merge(account);
 
+            evictAfterCommit(accountId);
+            transactionDao.createTransaction(TransactionType.WITHDRAWAL, amount.toBigDecimal(), accountId);
+
+            return result;
+        });
+    }
+
+    public BulkTransferResult transferAll(List<TransferInstruction> transfers) {
+        return transferAll(transfers, failurePolicy);
+    }
+
+    /**
+     * Выполняет пакет переводов в одной транзакции.
+     * <p>
+     * Все участвующие счета блокируются один раз по возрастанию ID, балансы пересчитываются
+     * в памяти по порядку инструкций, после чего изменённые счета и записи журнала
+     * сбрасываются в базу пакетами JDBC. При {@link TransferFailurePolicy#ALL_OR_NOTHING}
+     * любая отклонённая инструкция отменяет весь пакет.
+     */
+    public BulkTransferResult transferAll(List<TransferInstruction> transfers, TransferFailurePolicy policy) {
+        return operationMetrics.time(Operation.BULK_TRANSFER, () -> transactionHelper.executeWithRetry(maxAttempts,
+                session -> {
+            Map<Long, Account> accounts = lockAccounts(session, transfers);
+            // балансы пересчитываются в копейках, в BigDecimal переводятся только при записи
+            Map<Long, Money> balances = new HashMap<>();
+            accounts.forEach((id, account) -> balances.put(id, Money.of(account.getBalance())));
+
+            Map<Integer, FailureReason> rejected = new LinkedHashMap<>();
+            List<Transaction> ledger = new ArrayList<>(transfers.size());
+            Money fees = Money.ZERO;
+            LocalDateTime now = LocalDateTime.now();
+
+            for (int i = 0; i < transfers.size(); i++) {
+                TransferInstruction transfer = transfers.get(i);
+                Account sender = accounts.get(transfer.getFromAccountId());
+                Account recipient = accounts.get(transfer.getToAccountId());
+                Money amount = validAmount(transfer.getAmount());
+
+                if (sender == null || recipient == null || sender.isClosed() || recipient.isClosed()) {
+                    FailureReason reason = sender == null || recipient == null
+                            ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED;
+                    rejected.put(i, reason);
+                    recordRejection(Operation.BULK_TRANSFER, reason);
+                    continue;
+                }
+                if (amount == null) {
+                    rejected.put(i, FailureReason.INVALID_AMOUNT);
+                    recordRejection(Operation.BULK_TRANSFER, FailureReason.INVALID_AMOUNT);
+                    continue;
+                }
+                boolean isInterUserTransfer = !sender.getUser().getId().equals(recipient.getUser().getId());
+                Money feeAmount = isInterUserTransfer ? feeRate.feeOf(amount) : Money.ZERO;
+                Money debit = amount.plus(feeAmount);
+                Money senderBalance = balances.get(sender.getId());
+                if (senderBalance.isLessThan(debit)) {
+                    rejected.put(i, FailureReason.INSUFFICIENT_FUNDS);
+                    recordRejection(Operation.BULK_TRANSFER, FailureReason.INSUFFICIENT_FUNDS);
+                    continue;
+                }
+
+                balances.put(sender.getId(), senderBalance.minus(debit));
+                balances.put(recipient.getId(), balances.get(recipient.getId()).plus(amount));
+
+                ledger.add(ledgerRow(TransactionType.TRANSFER, amount.toBigDecimal(), sender, recipient, now));
+                if (feeAmount.isPositive()) {
+                    ledger.add(ledgerRow(TransactionType.FEE, feeAmount.toBigDecimal(), sender, null, now));
+                    fees = fees.plus(feeAmount);
+                }
+            }
+
+            if (policy == TransferFailurePolicy.ALL_OR_NOTHING && !rejected.isEmpty()) {
+                return new BulkTransferResult(0, rejected, BigDecimal.ZERO);
+            }
+
+            accounts.forEach((id, account) -> {
+                Money balance = balances.get(id);
+                if (!balance.equals(Money.of(account.getBalance()))) {
+                    account.setBalance(balance.toBigDecimal());
+                    evictAfterCommit(id);
+                }
+            });
+            session.flush();
+
+            for (int start = 0; start < ledger.size(); start += jdbcBatchSize) {
+                List<Transaction> rows = ledger.subList(start, Math.min(start + jdbcBatchSize, ledger.size()));
+                rows.forEach(session::persist);
+                session.flush();
+                // журнал пакета может быть большим, держать записанные строки в сессии незачем
+                rows.forEach(session::detach);
+            }
+
+            return new BulkTransferResult(transfers.size() - rejected.size(), rejected, fees.toBigDecimal());
+        }), BulkTransferResult::isFullyApplied);
+    }
+
+    /**
+     * Блокирует счета пакета по возрастанию ID частями, чтобы не упереться в предел параметров запроса.
+     */
+    private Map<Long, Account> lockAccounts(Session session, List<TransferInstruction> transfers) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (TransferInstruction transfer : transfers) {
+            if (transfer.getFromAccountId() != null) {
+                ids.add(transfer.getFromAccountId());
+            }
+            if (transfer.getToAccountId() != null) {
+                ids.add(transfer.getToAccountId());
+            }
+        }
+
+        Map<Long, Account> accounts = new HashMap<>();
+        List<Long> part = new ArrayList<>(LOCK_CHUNK_SIZE);
+        for (Long id : ids) {
+            part.add(id);
+            if (part.size() == LOCK_CHUNK_SIZE || id.equals(ids.last())) {
+                session.createQuery("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id", Account.class)
+                        .setParameter("ids", part)
+                        .setLockMode(lockMode())
+                        .getResultList()
+                        .forEach(account -> accounts.put(account.getId(), account));
+                part.clear();
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Сумма операции в копейках или {@code null}, если она не задана, не положительна или точнее копейки.
+     */
+    private static Money validAmount(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return null;
+        }
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private Transaction ledgerRow(TransactionType type, BigDecimal amount, Account from, Account to,
+                                  LocalDateTime createdAt) {
+        return Transaction.builder()
+                .type(type)
+                .amount(amount)
+                .createdAt(createdAt)
+                .fromAccount(from)
+                .toAccount(to)
+                .build();
+    }
+
+    /**
+     * Пополнение одним условным UPDATE без загрузки счёта: число изменённых строк
+     * показывает, существует ли открытый счёт. Запись в журнал идёт в той же транзакции.
+     */
+    private OperationResult depositAtomically(OperationResult result) {
+        Long accountId = result.getAccountId();
+        Money money = validAmount(result.getAmount());
+        if (money == null) {
+            return rejected(result, FailureReason.INVALID_AMOUNT);
+        }
+        BigDecimal amount = money.toBigDecimal();
+        return changeBalance(Collections.singletonList(accountId), session -> {
+            int updated = session.createMutationQuery(
+                            "UPDATE VERSIONED Account a SET a.balance = a.balance + :amount "
+                                    + "WHERE a.id = :id AND a.isClosed = false")
+                    .setParameter("amount", amount)
+                    .setParameter("id", accountId)
+                    .executeUpdate();
+            if (updated == 0) {
+                return rejected(result, depositRejection(session, accountId));
+            }
+
+            evictAfterCommit(accountId);
+            transactionDao.createTransaction(TransactionType.DEPOSIT, amount, accountId);
+
+            return result;
+        });
+    }
+
+    /**
+     * Снятие одним условным UPDATE: закрытие счёта и достаточность средств проверяет
+     * сама база в том же запросе. Причину отказа уточняет отдельный запрос только при неудаче.
+     */
+    private OperationResult withdrawAtomically(OperationResult result) {
+        Long accountId = result.getAccountId();
+        Money money = validAmount(result.getAmount());
+        if (money == null) {
+            return rejected(result, FailureReason.INVALID_AMOUNT);
+        }
+        BigDecimal amount = money.toBigDecimal();
+        return changeBalance(Collections.singletonList(accountId), session -> {
+            int updated = session.createMutationQuery(
+                            "UPDATE VERSIONED Account a SET a.balance = a.balance - :amount "
+                                    + "WHERE a.id = :id AND a.isClosed = false AND a.balance >= :amount")
+                    .setParameter("amount", amount)
+                    .setParameter("id", accountId)
+                    .executeUpdate();
+            if (updated == 0) {
+                return rejected(result, withdrawalRejection(session, accountId));
+            }
+
+            evictAfterCommit(accountId);
             transactionDao.createTransaction(TransactionType.WITHDRAWAL, amount, accountId);
 
-            return true;
+            return result;
+        });
+    }
+
+    private FailureReason depositRejection(Session session, Long accountId) {
+        Boolean closed = isClosed(session, accountId);
+        return closed == null ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED;
+    }
+
+    private FailureReason withdrawalRejection(Session session, Long accountId) {
+        Boolean closed = isClosed(session, accountId);
+        if (closed == null) {
+            return FailureReason.ACCOUNT_NOT_FOUND;
+        }
+        return closed ? FailureReason.ACCOUNT_CLOSED : FailureReason.INSUFFICIENT_FUNDS;
+    }
+
+    private static Boolean isClosed(Session session, Long accountId) {
+        return session.createQuery("SELECT a.isClosed FROM Account a WHERE a.id = :id", Boolean.class)
+                .setParameter("id", accountId)
+                .uniqueResult();
+    }
+
+    /**
+     * Изменение баланса вместе с записью журнала. При включённой групповой фиксации
+     * операция присоединяется к общему пакету, если не выполняется внутри чужой транзакции;
+     * пакет заранее блокирует счета {@code accountIds} по возрастанию ID.
+     */
+    private <T> T changeBalance(List<Long> accountIds, Function<Session, T> action) {
+        if (groupCommitter.isEnabled() && !transactionHelper.isTransactionActive()) {
+            return groupCommitter.execute(accountIds, action);
+        }
+        return transactionHelper.executeWithRetry(maxAttempts, action);
+    }
+
+    /**
+     * Учитывает причину отказа, когда транзакция зафиксирована: при откате пакета групповой
+     * фиксации или повторе операция выполнится снова и сама учтёт отказ.
+     */
+    private void recordRejection(Operation operation, FailureReason reason) {
+        transactionHelper.afterCommit(() -> operationMetrics.reject(operation, reason));
+    }
+
+    private OperationResult rejected(OperationResult result, FailureReason reason) {
+        recordRejection(result.getOperation(), reason);
+        return result.withFailure(reason);
+    }
+
+    private static OperationResult request(Operation operation, Long accountId, Long targetAccountId,
+                                           BigDecimal amount) {
+        return OperationResult.builder()
+                .operation(operation)
+                .accountId(accountId)
+                .targetAccountId(targetAccountId)
+                .amount(amount)
+                .build();
+    }
+
+    private void evictAfterCommit(Long... accountIds) {
+        transactionHelper.afterCommit(() -> {
+            for (Long accountId : accountIds) {
+                accountCache.invalidate(accountId);
+            }
         });
     }
+
+    private Account findForUpdate(Session session, Long accountId) {
+        return session.find(Account.class, accountId, lockMode());
+    }
+
+    private LockModeType lockMode() {
+        return concurrencyMode == ConcurrencyMode.PESSIMISTIC ? LockModeType.PESSIMISTIC_WRITE : LockModeType.NONE;
+    }
 }
\ No newline at end of file
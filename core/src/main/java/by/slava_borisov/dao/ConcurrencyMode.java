@@ -0,0 +1,17 @@
+package by.slava_borisov.dao;
+
+/**
+ * Способ защиты балансов счетов от одновременного изменения.
+ */
+public enum ConcurrencyMode {
+
+    /**
+     * Проверка версии счёта при фиксации; конфликтующая операция повторяется целиком.
+     */
+    OPTIMISTIC,
+
+    /**
+     * {@code SELECT ... FOR UPDATE}; счета блокируются по возрастанию ID, поэтому взаимных блокировок нет.
+     */
+    PESSIMISTIC
+}
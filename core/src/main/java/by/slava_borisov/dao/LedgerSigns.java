@@ -0,0 +1,35 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Знак записи журнала для баланса счёта. Отправителю запись уменьшает баланс, кроме пополнения
+ * и открытия счёта, получателю — всегда увеличивает.
+ */
+final class LedgerSigns {
+
+    static final List<TransactionType> SENDER_CREDITS = List.of(TransactionType.DEPOSIT,
+            TransactionType.ACCOUNT_CREATED);
+
+    /**
+     * Изменение баланса отправителя в HQL; параметр {@code :credits} — {@link #SENDER_CREDITS}.
+     */
+    static final String SENDER_EFFECT = "CASE WHEN t.type IN (:credits) THEN t.amount ELSE -t.amount END";
+
+    private LedgerSigns() {
+    }
+
+    static BigDecimal effect(Long accountId, TransactionType type, BigDecimal amount, Long fromId, Long toId) {
+        BigDecimal change = BigDecimal.ZERO;
+        if (accountId.equals(fromId)) {
+            change = SENDER_CREDITS.contains(type) ? amount : amount.negate();
+        }
+        if (accountId.equals(toId)) {
+            change = change.add(amount);
+        }
+        return change;
+    }
+}
@@ -0,0 +1,160 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.LedgerDelta;
+import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.AccountSnapshot;
+import by.slava_borisov.util.TransactionHelper;
+import jakarta.persistence.LockModeType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Запросы сверки балансов с журналом. Знак записей — по {@link LedgerSigns}.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class ReconciliationDao {
+
+    private final TransactionHelper transactionHelper;
+
+    public ReconciliationDao(TransactionHelper transactionHelper) {
+        this.transactionHelper = transactionHelper;
+    }
+
+    /**
+     * @return наименьший и наибольший ID счёта или {@code null}, если счетов нет
+     */
+    public long[] findAccountIdRange() {
+        return transactionHelper.executeInTransaction(session -> {
+            Object[] row = session.createQuery("SELECT MIN(a.id), MAX(a.id) FROM Account a", Object[].class)
+                    .uniqueResult();
+            return row[0] == null ? null : new long[]{(Long) row[0], (Long) row[1]};
+        });
+    }
+
+    public Map<Long, BigDecimal> findBalances(long fromId, long toId) {
+        return transactionHelper.executeInTransaction(session -> {
+            Map<Long, BigDecimal> balances = new LinkedHashMap<>();
+            session.createQuery("SELECT a.id, a.balance FROM Account a WHERE a.id BETWEEN :fromId AND :toId "
+                            + "ORDER BY a.id", Object[].class)
+                    .setParameter("fromId", fromId)
+                    .setParameter("toId", toId)
+                    .getResultList()
+                    .forEach(row -> balances.put((Long) row[0], (BigDecimal) row[1]));
+            return balances;
+        });
+    }
+
+    public Map<Long, AccountSnapshot> findSnapshots(long fromId, long toId) {
+        return transactionHelper.executeInTransaction(session -> {
+            Map<Long, AccountSnapshot> snapshots = new HashMap<>();
+            session.createQuery("SELECT s FROM AccountSnapshot s WHERE s.accountId BETWEEN :fromId AND :toId",
+                            AccountSnapshot.class)
+                    .setParameter("fromId", fromId)
+                    .setParameter("toId", toId)
+                    .getResultList()
+                    .forEach(snapshot -> snapshots.put(snapshot.getAccountId(), snapshot));
+            return snapshots;
+        });
+    }
+
+    /**
+     * Движение по счетам диапазона по записям журнала после снимка каждого счёта
+     * (по всему журналу, если снимка нет). Два агрегирующих запроса на диапазон: по стороне
+     * отправителя и по стороне получателя.
+     */
+    public Map<Long, LedgerDelta> findDeltasAfterSnapshots(long fromId, long toId) {
+        return transactionHelper.executeInTransaction(session -> {
+            Map<Long, LedgerDelta> deltas = new HashMap<>();
+            session.createQuery("SELECT t.fromAccount.id, SUM(" + LedgerSigns.SENDER_EFFECT + "), MAX(t.id), COUNT(t) "
+                            + "FROM Transaction t LEFT JOIN AccountSnapshot s ON s.accountId = t.fromAccount.id "
+                            + "WHERE t.fromAccount.id BETWEEN :fromId AND :toId "
+                            + "AND t.id > COALESCE(s.lastTransactionId, 0) "
+                            + "GROUP BY t.fromAccount.id", Object[].class)
+                    .setParameter("credits", LedgerSigns.SENDER_CREDITS)
+                    .setParameter("fromId", fromId)
+                    .setParameter("toId", toId)
+                    .getResultList()
+                    .forEach(row -> deltas.merge((Long) row[0], delta(row), LedgerDelta::plus));
+            session.createQuery("SELECT t.toAccount.id, SUM(t.amount), MAX(t.id), COUNT(t) "
+                            + "FROM Transaction t LEFT JOIN AccountSnapshot s ON s.accountId = t.toAccount.id "
+                            + "WHERE t.toAccount.id BETWEEN :fromId AND :toId "
+                            + "AND t.id > COALESCE(s.lastTransactionId, 0) "
+                            + "GROUP BY t.toAccount.id", Object[].class)
+                    .setParameter("fromId", fromId)
+                    .setParameter("toId", toId)
+                    .getResultList()
+                    .forEach(row -> deltas.merge((Long) row[0], delta(row), LedgerDelta::plus));
+            return deltas;
+        });
+    }
+
+    /**
+     * Движение по одному счёту по записям журнала с ID больше {@code afterId}.
+     */
+    public LedgerDelta findDelta(Long accountId, long afterId) {
+        return transactionHelper.executeInTransaction(session -> {
+            Object[] sent = session.createQuery("SELECT SUM(" + LedgerSigns.SENDER_EFFECT + "), MAX(t.id), COUNT(t) "
+                            + "FROM Transaction t WHERE t.fromAccount.id = :accountId AND t.id > :afterId",
+                            Object[].class)
+                    .setParameter("credits", LedgerSigns.SENDER_CREDITS)
+                    .setParameter("accountId", accountId)
+                    .setParameter("afterId", afterId)
+                    .uniqueResult();
+            Object[] received = session.createQuery("SELECT SUM(t.amount), MAX(t.id), COUNT(t) "
+                            + "FROM Transaction t WHERE t.toAccount.id = :accountId AND t.id > :afterId",
+                            Object[].class)
+                    .setParameter("accountId", accountId)
+                    .setParameter("afterId", afterId)
+                    .uniqueResult();
+            return delta(sent, 0).plus(delta(received, 0));
+        });
+    }
+
+    /**
+     * Баланс счёта под разделяемой блокировкой: пока она держится, записи журнала по счёту
+     * не появляются, потому что каждая из них меняет и строку счёта.
+     */
+    public BigDecimal lockBalance(Long accountId) {
+        return transactionHelper.executeInTransaction(session -> {
+            Account account = session.find(Account.class, accountId, LockModeType.PESSIMISTIC_READ);
+            return account != null ? account.getBalance() : null;
+        });
+    }
+
+    public void saveSnapshot(Long accountId, BigDecimal balance, long lastTransactionId) {
+        transactionHelper.executeInTransaction(session -> {
+            AccountSnapshot snapshot = session.find(AccountSnapshot.class, accountId);
+            if (snapshot == null) {
+                session.persist(AccountSnapshot.builder()
+                        .accountId(accountId)
+                        .balance(balance)
+                        .lastTransactionId(lastTransactionId)
+                        .takenAt(LocalDateTime.now())
+                        .build());
+            } else {
+                snapshot.setBalance(balance);
+                snapshot.setLastTransactionId(lastTransactionId);
+                snapshot.setTakenAt(LocalDateTime.now());
+            }
+        });
+    }
+
+    private static LedgerDelta delta(Object[] row) {
+        return delta(row, 1);
+    }
+
+    private static LedgerDelta delta(Object[] row, int offset) {
+        if (row[offset] == null) {
+            return LedgerDelta.NONE;
+        }
+        return new LedgerDelta((BigDecimal) row[offset], (Long) row[offset + 1], (Long) row[offset + 2]);
+    }
+}
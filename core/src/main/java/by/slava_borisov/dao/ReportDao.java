@@ -0,0 +1,256 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.DailyTotal;
+import by.slava_borisov.dto.ReportFilter;
+import by.slava_borisov.dto.TypeTotal;
+import by.slava_borisov.hibernate.entity.LedgerRollup;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.util.TransactionHelper;
+import jakarta.persistence.LockModeType;
+import org.hibernate.query.Query;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Агрегирующие запросы отчётов по журналу.
+ * <p>
+ * Дни по {@code rolledUpThrough} включительно читаются из свёрнутых дневных итогов,
+ * более поздние агрегируются по самому журналу.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class ReportDao {
+
+    private static final String ROLL_UP_SQL = """
+            INSERT INTO daily_account_totals (account_id, ledger_date, transaction_type,
+                    outgoing_count, outgoing_amount, incoming_count, incoming_amount)
+            SELECT account_id, ledger_date, transaction_type,
+                   SUM(outgoing_count), SUM(outgoing_amount), SUM(incoming_count), SUM(incoming_amount)
+            FROM (SELECT from_account_id AS account_id, CAST(created_at AS DATE) AS ledger_date, transaction_type,
+                         COUNT(*) AS outgoing_count, SUM(amount) AS outgoing_amount,
+                         0 AS incoming_count, CAST(0 AS NUMERIC(38, 2)) AS incoming_amount
+                  FROM transactions
+                  WHERE from_account_id IS NOT NULL AND created_at >= :from AND created_at < :to
+                  GROUP BY from_account_id, CAST(created_at AS DATE), transaction_type
+                  UNION ALL
+                  SELECT to_account_id, CAST(created_at AS DATE), transaction_type,
+                         0, CAST(0 AS NUMERIC(38, 2)), COUNT(*), SUM(amount)
+                  FROM transactions
+                  WHERE to_account_id IS NOT NULL AND created_at >= :from AND created_at < :to
+                  GROUP BY to_account_id, CAST(created_at AS DATE), transaction_type) sides
+            GROUP BY account_id, ledger_date, transaction_type
+            """;
+
+    private final TransactionHelper transactionHelper;
+
+    public ReportDao(TransactionHelper transactionHelper) {
+        this.transactionHelper = transactionHelper;
+    }
+
+    public LocalDate findRolledUpThrough() {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.find(LedgerRollup.class, LedgerRollup.ID).getRolledUpThrough();
+        });
+    }
+
+    /**
+     * Сворачивает в дневные итоги журнал после последнего свёрнутого дня по {@code through} включительно.
+     *
+     * @return последний свёрнутый день
+     */
+    public LocalDate rollUp(LocalDate through) {
+        LocalDate rolledUpThrough = findRolledUpThrough();
+        if (rolledUpThrough != null && !rolledUpThrough.isBefore(through)) {
+            return rolledUpThrough;
+        }
+        return transactionHelper.executeInTransaction(session -> {
+            // блокировка строки состояния не даёт двум свёрткам записать один день дважды
+            LedgerRollup rollup = session.find(LedgerRollup.class, LedgerRollup.ID, LockModeType.PESSIMISTIC_WRITE);
+            if (rollup.getRolledUpThrough() != null && !rollup.getRolledUpThrough().isBefore(through)) {
+                return rollup.getRolledUpThrough();
+            }
+            LocalDateTime from = rollup.getRolledUpThrough() != null
+                    ? rollup.getRolledUpThrough().plusDays(1).atStartOfDay()
+                    : session.createQuery("SELECT MIN(t.createdAt) FROM Transaction t", LocalDateTime.class)
+                    .uniqueResult();
+            if (from != null) {
+                session.createNativeMutationQuery(ROLL_UP_SQL)
+                        .setParameter("from", from)
+                        .setParameter("to", through.plusDays(1).atStartOfDay())
+                        .executeUpdate();
+            }
+            rollup.setRolledUpThrough(through);
+            return through;
+        });
+    }
+
+    /**
+     * @return итоги по счёту, дню и типу в порядке дня, счёта и типа
+     */
+    public List<DailyTotal> findDailyTotals(ReportFilter filter, LocalDate rolledUpThrough) {
+        return transactionHelper.executeInTransaction(session -> {
+            Map<List<Object>, DailyTotal> totals = new LinkedHashMap<>();
+            Period rolledUp = Period.rolledUp(filter, rolledUpThrough);
+            if (rolledUp != null) {
+                Conditions where = new Conditions()
+                        .add("d.date >= :fromDate", "fromDate", rolledUp.from)
+                        .add("d.date <= :toDate", "toDate", rolledUp.to)
+                        .add("d.accountId = :accountId", "accountId", filter.getAccountId())
+                        .add("d.type = :type", "type", filter.getType());
+                where.bind(session.createQuery("SELECT d.accountId, d.date, d.type, d.outgoingCount, d.outgoingAmount, "
+                                + "d.incomingCount, d.incomingAmount FROM DailyAccountTotal d" + where, Object[].class))
+                        .getResultList()
+                        .forEach(row -> merge(totals, new DailyTotal((Long) row[0], (LocalDate) row[1],
+                                (TransactionType) row[2], (Long) row[3], (BigDecimal) row[4],
+                                (Long) row[5], (BigDecimal) row[6])));
+            }
+            Period raw = Period.raw(filter, rolledUpThrough);
+            if (raw != null) {
+                for (String side : List.of("fromAccount", "toAccount")) {
+                    boolean outgoing = side.equals("fromAccount");
+                    Conditions where = ledgerConditions(filter, raw)
+                            .add("t." + side + ".id IS NOT NULL", null, null)
+                            .add("t." + side + ".id = :accountId", "accountId", filter.getAccountId());
+                    where.bind(session.createQuery("SELECT t." + side + ".id, cast(t.createdAt as LocalDate), "
+                                    + "t.type, COUNT(t), SUM(t.amount) FROM Transaction t" + where
+                                    + " GROUP BY t." + side + ".id, cast(t.createdAt as LocalDate), t.type",
+                                    Object[].class))
+                            .getResultList()
+                            .forEach(row -> merge(totals, outgoing
+                                    ? new DailyTotal((Long) row[0], (LocalDate) row[1], (TransactionType) row[2],
+                                    (Long) row[3], (BigDecimal) row[4], 0, BigDecimal.ZERO)
+                                    : new DailyTotal((Long) row[0], (LocalDate) row[1], (TransactionType) row[2],
+                                    0, BigDecimal.ZERO, (Long) row[3], (BigDecimal) row[4])));
+                }
+            }
+            List<DailyTotal> result = new ArrayList<>(totals.values());
+            result.sort(Comparator.comparing(DailyTotal::getDate)
+                    .thenComparing(DailyTotal::getAccountId)
+                    .thenComparing(DailyTotal::getType));
+            return result;
+        });
+    }
+
+    /**
+     * Итоги по типу операции. Без счёта каждая запись журнала учитывается один раз,
+     * со счётом — записи, где он отправитель или получатель.
+     */
+    public List<TypeTotal> findTypeTotals(ReportFilter filter, LocalDate rolledUpThrough) {
+        return transactionHelper.executeInTransaction(session -> {
+            Map<TransactionType, TypeTotal> totals = new HashMap<>();
+            Period rolledUp = Period.rolledUp(filter, rolledUpThrough);
+            if (rolledUp != null) {
+                // у каждой записи журнала есть отправитель, так что расход по всем счетам — это весь журнал
+                String count = filter.getAccountId() != null ? "SUM(d.outgoingCount + d.incomingCount)"
+                        : "SUM(d.outgoingCount)";
+                String amount = filter.getAccountId() != null ? "SUM(d.outgoingAmount + d.incomingAmount)"
+                        : "SUM(d.outgoingAmount)";
+                Conditions where = new Conditions()
+                        .add("d.date >= :fromDate", "fromDate", rolledUp.from)
+                        .add("d.date <= :toDate", "toDate", rolledUp.to)
+                        .add("d.accountId = :accountId", "accountId", filter.getAccountId())
+                        .add("d.type = :type", "type", filter.getType());
+                where.bind(session.createQuery("SELECT d.type, " + count + ", " + amount
+                                + " FROM DailyAccountTotal d" + where + " GROUP BY d.type", Object[].class))
+                        .getResultList()
+                        .forEach(row -> totals.merge((TransactionType) row[0],
+                                new TypeTotal((TransactionType) row[0], (Long) row[1], (BigDecimal) row[2]),
+                                TypeTotal::plus));
+            }
+            Period raw = Period.raw(filter, rolledUpThrough);
+            if (raw != null) {
+                Conditions where = ledgerConditions(filter, raw)
+                        .add("(t.fromAccount.id = :accountId OR t.toAccount.id = :accountId)",
+                                "accountId", filter.getAccountId());
+                where.bind(session.createQuery("SELECT t.type, COUNT(t), SUM(t.amount) FROM Transaction t" + where
+                                + " GROUP BY t.type", Object[].class))
+                        .getResultList()
+                        .forEach(row -> totals.merge((TransactionType) row[0],
+                                new TypeTotal((TransactionType) row[0], (Long) row[1], (BigDecimal) row[2]),
+                                TypeTotal::plus));
+            }
+            List<TypeTotal> result = new ArrayList<>(totals.values());
+            result.sort(Comparator.comparing(TypeTotal::getType));
+            return result;
+        });
+    }
+
+    private static Conditions ledgerConditions(ReportFilter filter, Period period) {
+        return new Conditions()
+                .add("t.createdAt >= :from", "from", period.from != null ? period.from.atStartOfDay() : null)
+                .add("t.createdAt < :to", "to", period.to != null ? period.to.plusDays(1).atStartOfDay() : null)
+                .add("t.type = :type", "type", filter.getType());
+    }
+
+    private static void merge(Map<List<Object>, DailyTotal> totals, DailyTotal total) {
+        totals.merge(List.of(total.getAccountId(), total.getDate(), total.getType()), total, DailyTotal::plus);
+    }
+
+    /**
+     * Дни периода отчёта, которые читаются из одного источника. Незаданная граница не ограничивает период.
+     */
+    private record Period(LocalDate from, LocalDate to) {
+
+        static Period rolledUp(ReportFilter filter, LocalDate rolledUpThrough) {
+            if (rolledUpThrough == null || filter.getFrom() != null && filter.getFrom().isAfter(rolledUpThrough)) {
+                return null;
+            }
+            LocalDate to = filter.getTo() != null && filter.getTo().isBefore(rolledUpThrough)
+                    ? filter.getTo() : rolledUpThrough;
+            return new Period(filter.getFrom(), to);
+        }
+
+        static Period raw(ReportFilter filter, LocalDate rolledUpThrough) {
+            if (rolledUpThrough == null) {
+                return new Period(filter.getFrom(), filter.getTo());
+            }
+            if (filter.getTo() != null && !filter.getTo().isAfter(rolledUpThrough)) {
+                return null;
+            }
+            LocalDate from = filter.getFrom() != null && filter.getFrom().isAfter(rolledUpThrough)
+                    ? filter.getFrom() : rolledUpThrough.plusDays(1);
+            return new Period(from, filter.getTo());
+        }
+    }
+
+    /**
+     * Условия WHERE вместе с параметрами; условие с незаданным параметром пропускается.
+     */
+    private static final class Conditions {
+
+        private final StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        private final Map<String, Object> parameters = new HashMap<>();
+
+
+        Conditions add(String condition, String name, Object value) {
+            if (name == null || value != null) {
+                where.append(" AND ").append(condition);
+                if (name != null) {
+                    parameters.put(name, value);
+                }
+            }
+            return this;
+        }
+
+        <T> Query<T> bind(Query<T> query) {
+            parameters.forEach(query::setParameter);
+            return query;
+        }
+
+        @Override
+        public String toString() {
+            return where.toString();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.StatementLine;
+import by.slava_borisov.dto.StatementSummary;
+import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Выписка по счёту потоком в хронологическом порядке.
+ * <p>
+ * Записи, где счёт отправитель, и записи, где он получатель, читаются двумя курсорами по индексам
+ * {@code (from_account_id, created_at)} и {@code (to_account_id, created_at)} и сливаются по времени:
+ * каждый курсор уже упорядочен индексом, и базе не нужно сортировать выписку целиком. Строки
+ * передаются получателю по одной, в памяти выписка не накапливается.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class StatementDao {
+
+    private static final String COLUMNS = "SELECT t.id, t.createdAt, t.type, t.amount, t.fromAccount.id, "
+            + "t.toAccount.id FROM Transaction t ";
+    private static final String ORDER = " AND t.createdAt >= :from AND t.createdAt < :to ORDER BY t.createdAt, t.id";
+
+    private final SessionFactory sessionFactory;
+
+    @Value("${bank.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public StatementDao(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Передаёт {@code sink} строки выписки за период с {@code from} по {@code to} включительно.
+     * Незаданная граница не ограничивает период.
+     */
+    public StatementSummary streamStatement(Long accountId, LocalDate from, LocalDate to,
+                                            Consumer<StatementLine> sink) {
+        LocalDateTime start = from != null ? from.atStartOfDay() : LocalDateTime.of(1, 1, 1, 0, 0);
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : LocalDateTime.of(9999, 12, 31, 0, 0);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            // PostgreSQL отдаёт строки порциями по fetch size только внутри транзакции
+            Transaction transaction = session.beginTransaction();
+            try {
+                if (session.get(Account.class, accountId) == null) {
+                    throw new IllegalArgumentException("Счёт с ID " + accountId + " не найден");
+                }
+                BigDecimal opening = from != null ? openingBalance(session, accountId, start) : BigDecimal.ZERO;
+                BigDecimal balance = opening;
+                long lines = 0;
+                try (ScrollableResults<Object[]> sent = scroll(session, COLUMNS
+                        + "WHERE t.fromAccount.id = :accountId" + ORDER, accountId, start, end);
+                     // перевод самому себе уже прочитан со стороны отправителя
+                     ScrollableResults<Object[]> received = scroll(session, COLUMNS
+                             + "WHERE t.toAccount.id = :accountId "
+                             + "AND (t.fromAccount.id IS NULL OR t.fromAccount.id <> :accountId)" + ORDER,
+                             accountId, start, end)) {
+
+                    Object[] nextSent = sent.next() ? sent.get() : null;
+                    Object[] nextReceived = received.next() ? received.get() : null;
+                    while (nextSent != null || nextReceived != null) {
+                        Object[] row;
+                        if (nextReceived == null || nextSent != null && precedes(nextSent, nextReceived)) {
+                            row = nextSent;
+                            nextSent = sent.next() ? sent.get() : null;
+                        } else {
+                            row = nextReceived;
+                            nextReceived = received.next() ? received.get() : null;
+                        }
+                        Long fromId = (Long) row[4];
+                        Long toId = (Long) row[5];
+                        BigDecimal change = LedgerSigns.effect(accountId, (TransactionType) row[2],
+                                (BigDecimal) row[3], fromId, toId);
+                        balance = balance.add(change);
+                        sink.accept(new StatementLine((Long) row[0], (LocalDateTime) row[1],
+                                (TransactionType) row[2], accountId.equals(fromId) ? toId : fromId, change, balance));
+                        lines++;
+                    }
+                }
+                return new StatementSummary(accountId, opening, balance, lines);
+            } finally {
+                transaction.rollback();
+            }
+        }
+    }
+
+    private BigDecimal openingBalance(StatelessSession session, Long accountId, LocalDateTime before) {
+        BigDecimal sent = session.createQuery("SELECT COALESCE(SUM(" + LedgerSigns.SENDER_EFFECT + "), 0) "
+                        + "FROM Transaction t WHERE t.fromAccount.id = :accountId AND t.createdAt < :before",
+                        BigDecimal.class)
+                .setParameter("credits", LedgerSigns.SENDER_CREDITS)
+                .setParameter("accountId", accountId)
+                .setParameter("before", before)
+                .uniqueResult();
+        BigDecimal received = session.createQuery("SELECT COALESCE(SUM(t.amount), 0) "
+                        + "FROM Transaction t WHERE t.toAccount.id = :accountId AND t.createdAt < :before",
+                        BigDecimal.class)
+                .setParameter("accountId", accountId)
+                .setParameter("before", before)
+                .uniqueResult();
+        return sent.add(received);
+    }
+
+    private ScrollableResults<Object[]> scroll(StatelessSession session, String hql, Long accountId,
+                                               LocalDateTime from, LocalDateTime to) {
+        SelectionQuery<Object[]> query = session.createSelectionQuery(hql, Object[].class)
+                .setParameter("accountId", accountId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+        return query.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    private static boolean precedes(Object[] left, Object[] right) {
+        int byTime = ((LocalDateTime) left[1]).compareTo((LocalDateTime) right[1]);
+        return byTime != 0 ? byTime < 0 : (Long) left[0] < (Long) right[0];
+    }
+}
@@ -1,14 +1,22 @@
 package by.slava_borisov.dao;
 
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.TransactionFilter;
+import by.slava_borisov.dto.TransactionView;
+import by.slava_borisov.hibernate.entity.Account;
 import by.slava_borisov.hibernate.entity.Transaction;
 import by.slava_borisov.hibernate.entity.TransactionType;
 import by.slava_borisov.util.TransactionHelper;
+import org.hibernate.query.Query;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
+@Profile(Profiles.DATABASE)
 @Component
 public class TransactionDao {
 
@@ -25,9 +33,9 @@ public class TransactionDao {
                     .amount(amount)
                     .createdAt(LocalDateTime.now())
                     .fromAccount(fromAccountId != null ?
-                            session.find(by.slava_borisov.hibernate.entity.Account.class, fromAccountId) : null)
+                            session.getReference(Account.class, fromAccountId) : null)
                     .toAccount(toAccountId != null ?
-                            session.find(by.slava_borisov.hibernate.entity.Account.class, toAccountId) : null)
+                            session.getReference(Account.class, toAccountId) : null)
                     .build();
             session.persist(transaction);
             return null;
@@ -38,10 +46,56 @@ public class TransactionDao {
         createTransaction(type, amount, accountId, null);
     }
 
-    public List<Transaction> getAllTransactions() {
+    /**
+     * Возвращает страницу журнала в порядке возрастания ID, начиная после {@code afterId}.
+     * Постраничный проход по ключу не зависит от глубины страницы, в отличие от OFFSET.
+     */
+    public Page<TransactionView> findTransactions(TransactionFilter filter, Long afterId, int pageSize) {
         return transactionHelper.executeInTransaction(session -> {
-            return session.createQuery("SELECT t FROM Transaction t", Transaction.class)
-                    .getResultList();
+            StringBuilder hql = new StringBuilder("SELECT new by.slava_borisov.dto.TransactionView("
+                    + "t.id, t.amount, t.type, t.createdAt, t.fromAccount.id, t.toAccount.id) "
+                    + "FROM Transaction t WHERE 1 = 1");
+            if (afterId != null) {
+                hql.append(" AND t.id > :afterId");
+            }
+            if (filter.getAccountId() != null) {
+                hql.append(" AND (t.fromAccount.id = :accountId OR t.toAccount.id = :accountId)");
+            }
+            if (filter.getType() != null) {
+                hql.append(" AND t.type = :type");
+            }
+            if (filter.getFrom() != null) {
+                hql.append(" AND t.createdAt >= :from");
+            }
+            if (filter.getTo() != null) {
+                hql.append(" AND t.createdAt < :to");
+            }
+            hql.append(" ORDER BY t.id");
+
+            Query<TransactionView> query = session.createQuery(hql.toString(), TransactionView.class);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+            }
+            if (filter.getAccountId() != null) {
+                query.setParameter("accountId", filter.getAccountId());
+            }
+            if (filter.getType() != null) {
+                query.setParameter("type", filter.getType());
+            }
+            if (filter.getFrom() != null) {
+                query.setParameter("from", filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                query.setParameter("to", filter.getTo());
+            }
+
+            // лишняя запись показывает, есть ли следующая страница
+            List<TransactionView> items = query.setMaxResults(pageSize + 1).getResultList();
+            if (items.size() > pageSize) {
+                items = items.subList(0, pageSize);
+                return new Page<>(List.copyOf(items), items.get(pageSize - 1).getId());
+            }
+            return new Page<>(items, null);
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package by.slava_borisov.dao;
+
+/**
+ * Что делать с пакетом переводов, если часть инструкций выполнить нельзя.
+ */
+public enum TransferFailurePolicy {
+
+    /**
+     * Одна неверная инструкция отменяет весь пакет.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Неверные инструкции пропускаются, остальные выполняются.
+     */
+    SKIP_INVALID
+}
@@ -1,27 +1,41 @@
 package by.slava_borisov.dao;
 
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dto.AccountView;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.UserView;
 import by.slava_borisov.hibernate.entity.Account;
 import by.slava_borisov.hibernate.entity.User;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.metrics.OperationMetrics;
 import by.slava_borisov.util.TransactionHelper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.hibernate.Hibernate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+@Profile(Profiles.DATABASE)
 @Component
 public class UserDao {
 
     private final TransactionHelper transactionHelper;
+    private final OperationMetrics operationMetrics;
 
     @Value("${bank.default.balance}")
     private BigDecimal defaultBalance;
 
-    public UserDao(TransactionHelper transactionHelper) {
+    public UserDao(TransactionHelper transactionHelper, OperationMetrics operationMetrics) {
         this.transactionHelper = transactionHelper;
+        this.operationMetrics = operationMetrics;
     }
 
     public User getUserById(Long id) {
@@ -34,19 +48,29 @@ public class UserDao {
         return transactionHelper.executeInTransaction(session -> {
             return session.createQuery("SELECT u FROM User u WHERE u.login = :login", User.class)
                     .setParameter("login", login)
+                    .setCacheable(true)
+                    .setCacheRegion(User.LOGIN_QUERY_CACHE_REGION)
                     .uniqueResult();
         });
     }
 
-    public boolean addUser(String login) {
-        return transactionHelper.executeInTransaction(session -> {
+    /**
+     * Регистрирует пользователя вместе с его первым счётом.
+     */
+    public OperationResult addUser(String login) {
+        return operationMetrics.time(Operation.CREATE_USER, () -> transactionHelper.executeInTransaction(session -> {
             Long count = session.createQuery(
                             "SELECT COUNT(u) FROM User u WHERE u.login = :login", Long.class)
                     .setParameter("login", login)
                     .uniqueResult();
 
             if (count > 0) {
-                return false;
+                transactionHelper.afterCommit(() -> operationMetrics.reject(Operation.CREATE_USER,
+                        FailureReason.LOGIN_TAKEN));
+                return OperationResult.builder()
+                        .operation(Operation.CREATE_USER)
+                        .failure(FailureReason.LOGIN_TAKEN)
+                        .build();
             }
 
             User user = User.builder()
@@ -69,18 +93,47 @@ public class UserDao {
                 user.getAccounts().add(account);
             }
 
-            return true;
-        });
+            return OperationResult.builder()
+                    .operation(Operation.CREATE_USER)
+                    .userId(user.getId())
+                    .accountId(account.getId())
+                    .amount(defaultBalance)
+                    .build();
+        }), OperationResult::isSuccess);
     }
 
-    public List<User> getAllUsers() {
+    /**
+     * Возвращает страницу пользователей со счетами одним запросом: подзапрос выбирает
+     * ID пользователей страницы, внешний запрос присоединяет их счета.
+     */
+    public Page<UserView> findUsers(Long afterId, int pageSize) {
         return transactionHelper.executeInTransaction(session -> {
-            List<User> users = session.createQuery("SELECT u FROM User u", User.class)
+            List<Object[]> rows = session.createQuery(
+                            "SELECT u.id, u.login, a.id, a.balance, a.isClosed "
+                                    + "FROM User u LEFT JOIN u.accounts a "
+                                    + "WHERE u.id IN (SELECT p.id FROM User p WHERE p.id > :afterId "
+                                    + "ORDER BY p.id LIMIT :limit) "
+                                    + "ORDER BY u.id, a.id", Object[].class)
+                    .setParameter("afterId", afterId != null ? afterId : Long.MIN_VALUE)
+                    // лишний пользователь показывает, есть ли следующая страница
+                    .setParameter("limit", pageSize + 1)
                     .getResultList();
-            for (User user : users) {
-                Hibernate.initialize(user.getAccounts());
+
+            Map<Long, UserView> users = new LinkedHashMap<>();
+            for (Object[] row : rows) {
+                UserView user = users.computeIfAbsent((Long) row[0],
+                        id -> new UserView(id, (String) row[1], new ArrayList<>()));
+                if (row[2] != null) {
+                    user.getAccounts().add(new AccountView((Long) row[2], (BigDecimal) row[3], (Boolean) row[4]));
+                }
+            }
+
+            List<UserView> items = new ArrayList<>(users.values());
+            if (items.size() > pageSize) {
+                items = List.copyOf(items.subList(0, pageSize));
+                return new Page<>(items, items.get(pageSize - 1).getId());
             }
-            return users;
+            return new Page<>(items, null);
         });
     }
 }
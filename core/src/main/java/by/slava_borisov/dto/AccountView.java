@@ -0,0 +1,16 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Счёт в списках: без ссылки на владельца и без отслеживания изменений.
+ */
+@Value
+public class AccountView {
+
+    Long id;
+    BigDecimal balance;
+    boolean closed;
+}
@@ -0,0 +1,27 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.metrics.FailureReason;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Итог пакета переводов.
+ */
+@Value
+public class BulkTransferResult {
+
+    int applied;
+
+    /**
+     * Причины отказа по номеру инструкции в пакете, начиная с нуля.
+     */
+    Map<Integer, FailureReason> rejected;
+
+    BigDecimal fees;
+
+    public boolean isFullyApplied() {
+        return rejected.isEmpty();
+    }
+}
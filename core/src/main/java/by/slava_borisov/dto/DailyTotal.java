@@ -0,0 +1,36 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Итоги счёта за день по одному типу операции.
+ */
+@Value
+public class DailyTotal {
+
+    Long accountId;
+    LocalDate date;
+    TransactionType type;
+
+    /**
+     * Записи, где счёт — отправитель.
+     */
+    long outgoingCount;
+    BigDecimal outgoingAmount;
+
+    /**
+     * Записи, где счёт — получатель.
+     */
+    long incomingCount;
+    BigDecimal incomingAmount;
+
+    public DailyTotal plus(DailyTotal other) {
+        return new DailyTotal(accountId, date, type,
+                outgoingCount + other.outgoingCount, outgoingAmount.add(other.outgoingAmount),
+                incomingCount + other.incomingCount, incomingAmount.add(other.incomingAmount));
+    }
+}
@@ -0,0 +1,27 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Суммарное движение по счёту за отрезок журнала.
+ */
+@Value
+public class LedgerDelta {
+
+    public static final LedgerDelta NONE = new LedgerDelta(BigDecimal.ZERO, 0, 0);
+
+    BigDecimal amount;
+
+    /**
+     * Наибольший ID записи в отрезке или 0, если записей нет.
+     */
+    long lastTransactionId;
+    long rows;
+
+    public LedgerDelta plus(LedgerDelta other) {
+        return new LedgerDelta(amount.add(other.amount),
+                Math.max(lastTransactionId, other.lastTransactionId), rows + other.rows);
+    }
+}
@@ -0,0 +1,48 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+import java.math.BigDecimal;
+
+/**
+ * Исход операции банка. Операция выполнена, если причина отказа не задана.
+ */
+@Value
+@With
+@Builder
+public class OperationResult {
+
+    Operation operation;
+
+    /**
+     * Причина отказа или {@code null}, если операция выполнена.
+     */
+    FailureReason failure;
+
+    Long userId;
+
+    /**
+     * Счёт операции: созданный, закрытый, пополненный или счёт отправителя.
+     */
+    Long accountId;
+
+    /**
+     * Счёт получателя перевода или счёт, на который ушёл остаток закрытого счёта.
+     */
+    Long targetAccountId;
+
+    BigDecimal amount;
+
+    /**
+     * Списанная комиссия; для операций без комиссии {@code null} или ноль.
+     */
+    BigDecimal fee;
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,23 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Страница выборки, прочитанная по ключу.
+ */
+@Value
+public class Page<T> {
+
+    List<T> items;
+
+    /**
+     * Ключ последней записи страницы для запроса следующей или {@code null}, если записей больше нет.
+     */
+    Long nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,24 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Счёт, баланс которого не совпадает с журналом.
+ */
+@Value
+public class ReconciliationMismatch {
+
+    Long accountId;
+    BigDecimal balance;
+
+    /**
+     * Баланс по журналу.
+     */
+    BigDecimal expected;
+
+    public BigDecimal getDifference() {
+        return balance.subtract(expected);
+    }
+}
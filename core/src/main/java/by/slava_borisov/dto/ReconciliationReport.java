@@ -0,0 +1,22 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ReconciliationReport {
+
+    long accountsChecked;
+
+    /**
+     * Записи журнала, проигранные поверх снимков.
+     */
+    long ledgerRowsReplayed;
+    List<ReconciliationMismatch> mismatches;
+    long elapsedMillis;
+
+    public boolean isConsistent() {
+        return mismatches.isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Условия отчёта по дням. Незаданное поле не ограничивает выборку.
+ */
+@Value
+@Builder
+public class ReportFilter {
+
+    /**
+     * Счёт, который выступает отправителем или получателем.
+     */
+    Long accountId;
+
+    TransactionType type;
+
+    /**
+     * Первый день периода, включительно.
+     */
+    LocalDate from;
+
+    /**
+     * Последний день периода, включительно.
+     */
+    LocalDate to;
+
+    public static ReportFilter all() {
+        return ReportFilter.builder().build();
+    }
+}
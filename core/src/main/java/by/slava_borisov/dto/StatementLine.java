@@ -0,0 +1,33 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Строка выписки по счёту.
+ */
+@Value
+public class StatementLine {
+
+    Long transactionId;
+    LocalDateTime createdAt;
+    TransactionType type;
+
+    /**
+     * Второй счёт операции или {@code null}.
+     */
+    Long counterpartyAccountId;
+
+    /**
+     * Изменение баланса счёта: расход со знаком минус.
+     */
+    BigDecimal change;
+
+    /**
+     * Баланс после операции.
+     */
+    BigDecimal balance;
+}
@@ -0,0 +1,18 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class StatementSummary {
+
+    Long accountId;
+
+    /**
+     * Баланс по журналу на начало периода.
+     */
+    BigDecimal openingBalance;
+    BigDecimal closingBalance;
+    long lines;
+}
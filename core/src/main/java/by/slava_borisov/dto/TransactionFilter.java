@@ -0,0 +1,36 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Условия отбора записей журнала транзакций. Незаданное поле не ограничивает выборку.
+ */
+@Value
+@Builder
+public class TransactionFilter {
+
+    /**
+     * Счёт, который выступает отправителем или получателем.
+     */
+    Long accountId;
+
+    TransactionType type;
+
+    /**
+     * Начало периода, включительно.
+     */
+    LocalDateTime from;
+
+    /**
+     * Конец периода, не включительно.
+     */
+    LocalDateTime to;
+
+    public static TransactionFilter all() {
+        return TransactionFilter.builder().build();
+    }
+}
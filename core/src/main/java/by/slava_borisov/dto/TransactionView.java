@@ -0,0 +1,21 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Строка журнала транзакций для вывода в списках: только поля и ID счетов, без сущностей.
+ */
+@Value
+public class TransactionView {
+
+    Long id;
+    BigDecimal amount;
+    TransactionType type;
+    LocalDateTime createdAt;
+    Long fromAccountId;
+    Long toAccountId;
+}
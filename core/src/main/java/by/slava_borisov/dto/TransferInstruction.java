@@ -0,0 +1,16 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Один перевод из пакета.
+ */
+@Value
+public class TransferInstruction {
+
+    Long fromAccountId;
+    Long toAccountId;
+    BigDecimal amount;
+}
@@ -0,0 +1,21 @@
+package by.slava_borisov.dto;
+
+import by.slava_borisov.hibernate.entity.TransactionType;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоги журнала за период по типу операции.
+ */
+@Value
+public class TypeTotal {
+
+    TransactionType type;
+    long count;
+    BigDecimal amount;
+
+    public TypeTotal plus(TypeTotal other) {
+        return new TypeTotal(type, count + other.count, amount.add(other.amount));
+    }
+}
@@ -0,0 +1,16 @@
+package by.slava_borisov.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Пользователь со списком счетов для вывода в списках.
+ */
+@Value
+public class UserView {
+
+    Long id;
+    String login;
+    List<AccountView> accounts;
+}
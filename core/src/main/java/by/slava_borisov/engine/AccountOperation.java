@@ -0,0 +1,52 @@
+package by.slava_borisov.engine;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Операция над счётом для {@link AccountOperationEngine}.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class AccountOperation {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+
+        /**
+         * Остаток переводится на другой счёт владельца; этот счёт в очередь полос не встаёт,
+         * его защищают блокировки {@code AccountDao}.
+         */
+        CLOSE
+    }
+
+    Type type;
+    Long accountId;
+
+    /**
+     * Счёт получателя, только для перевода.
+     */
+    Long targetAccountId;
+    BigDecimal amount;
+
+    public static AccountOperation deposit(Long accountId, BigDecimal amount) {
+        return new AccountOperation(Type.DEPOSIT, accountId, null, amount);
+    }
+
+    public static AccountOperation withdraw(Long accountId, BigDecimal amount) {
+        return new AccountOperation(Type.WITHDRAW, accountId, null, amount);
+    }
+
+    public static AccountOperation transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        return new AccountOperation(Type.TRANSFER, fromAccountId, toAccountId, amount);
+    }
+
+    public static AccountOperation close(Long accountId) {
+        return new AccountOperation(Type.CLOSE, accountId, null, null);
+    }
+}
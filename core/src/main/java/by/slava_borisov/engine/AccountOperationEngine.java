@@ -0,0 +1,151 @@
+package by.slava_borisov.engine;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dto.OperationResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выполняет операции над счетами параллельно на пуле рабочих потоков.
+ * <p>
+ * Счета распределены по полосам по ID. Каждая полоса — очередь: операция запускается
+ * только после завершения предыдущих операций своих полос, поэтому операции над одним
+ * счётом выполняются строго в порядке подачи, а над несвязанными счетами — параллельно.
+ * Перевод встаёт в очереди обеих полос. Число одновременных обращений к базе ограничено,
+ * чтобы рабочие потоки не выстраивались в очередь за соединениями пула.
+ * <p>
+ * На JDK 21 и новее операции выполняются в виртуальных потоках.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class AccountOperationEngine implements AutoCloseable {
+
+    private final AccountDao accountDao;
+    private final ExecutorService executor;
+    private final Semaphore connections;
+    private final CompletableFuture<?>[] stripes;
+    private final boolean virtualThreads;
+
+    public AccountOperationEngine(AccountDao accountDao,
+                                  @Value("${bank.engine.workers:0}") int workers,
+                                  @Value("${bank.engine.stripes:64}") int stripeCount,
+                                  @Value("${bank.engine.max-concurrency:0}") int maxConcurrency,
+                                  @Value("${bank.engine.virtual-threads:true}") boolean useVirtualThreads,
+                                  @Value("${db.pool.maximum-size:10}") int poolSize) {
+        this.accountDao = accountDao;
+        ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual
+                : Executors.newFixedThreadPool(workers > 0 ? workers : Runtime.getRuntime().availableProcessors(),
+                workerThreadFactory());
+        this.connections = new Semaphore(maxConcurrency > 0 ? maxConcurrency : poolSize, true);
+        this.stripes = new CompletableFuture<?>[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Ставит операцию в очередь.
+     *
+     * @return исход операции
+     */
+    public CompletableFuture<OperationResult> submit(AccountOperation operation) {
+        int first = stripeOf(operation.getAccountId());
+        int second = operation.getTargetAccountId() != null ? stripeOf(operation.getTargetAccountId()) : first;
+
+        synchronized (stripes) {
+            CompletableFuture<?> previous = first == second
+                    ? stripes[first]
+                    : CompletableFuture.allOf(stripes[first], stripes[second]);
+            CompletableFuture<OperationResult> result = previous.thenApplyAsync(ignored -> execute(operation), executor);
+            // ошибка операции не должна останавливать очередь полосы
+            CompletableFuture<?> done = result.handle((value, error) -> null);
+            stripes[first] = done;
+            stripes[second] = done;
+            return result;
+        }
+    }
+
+    /**
+     * Выполняет операции и ждёт завершения всех.
+     *
+     * @return результаты в порядке подачи
+     */
+    public List<OperationResult> executeAll(Collection<AccountOperation> operations) {
+        List<CompletableFuture<OperationResult>> futures = new ArrayList<>(operations.size());
+        for (AccountOperation operation : operations) {
+            futures.add(submit(operation));
+        }
+        List<OperationResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<OperationResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private OperationResult execute(AccountOperation operation) {
+        connections.acquireUninterruptibly();
+        try {
+            return switch (operation.getType()) {
+                case DEPOSIT -> accountDao.deposit(operation.getAccountId(), operation.getAmount());
+                case WITHDRAW -> accountDao.withdraw(operation.getAccountId(), operation.getAmount());
+                case TRANSFER -> accountDao.transfer(operation.getAccountId(), operation.getTargetAccountId(),
+                        operation.getAmount());
+                case CLOSE -> accountDao.closeAccount(operation.getAccountId());
+            };
+        } finally {
+            connections.release();
+        }
+    }
+
+    private int stripeOf(Long accountId) {
+        return accountId == null ? 0 : Math.floorMod(Long.hashCode(accountId), stripes.length);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Не удалось создать пул виртуальных потоков", e);
+        }
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "account-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,6 @@
+package by.slava_borisov.export;
+
+public enum ExportFormat {
+    CSV,
+    JSONL
+}
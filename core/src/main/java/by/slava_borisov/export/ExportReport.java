@@ -0,0 +1,17 @@
+package by.slava_borisov.export;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+
+@Value
+public class ExportReport {
+
+    Path file;
+    long rows;
+    long elapsedMillis;
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+}
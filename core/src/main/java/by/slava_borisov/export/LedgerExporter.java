@@ -0,0 +1,117 @@
+package by.slava_borisov.export;
+
+import by.slava_borisov.config.Profiles;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Выгружает журнал транзакций в файл потоком.
+ * <p>
+ * Строки читаются однонаправленным курсором через {@link StatelessSession}: контекст
+ * персистентности не создаётся, поэтому потребление памяти не зависит от размера таблицы.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class LedgerExporter {
+
+    private static final String QUERY = "SELECT t.id, t.type, t.amount, t.createdAt, t.fromAccount.id, t.toAccount.id "
+            + "FROM Transaction t ORDER BY t.id";
+    private static final String CSV_HEADER = "id,type,amount,created_at,from_account_id,to_account_id";
+
+    private final SessionFactory sessionFactory;
+
+    @Value("${bank.export.fetch-size:1000}")
+    private int fetchSize;
+    @Value("${bank.export.buffer-size:65536}")
+    private int bufferSize;
+
+    public LedgerExporter(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public ExportReport export(Path file, ExportFormat format) {
+        long started = System.nanoTime();
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), bufferSize);
+             StatelessSession session = sessionFactory.openStatelessSession()) {
+
+            // PostgreSQL отдаёт строки порциями по fetch size только внутри транзакции
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults<Object[]> results = session.createQuery(QUERY, Object[].class)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+
+                if (format == ExportFormat.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                while (results.next()) {
+                    Object[] row = results.get();
+                    if (format == ExportFormat.CSV) {
+                        writeCsv(writer, row);
+                    } else {
+                        writeJsonLine(writer, row);
+                    }
+                    rows++;
+                }
+            } finally {
+                transaction.rollback();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать файл " + file, e);
+        }
+        return new ExportReport(file, rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void writeCsv(Writer writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (row[i] != null) {
+                writer.write(text(row[i]));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void writeJsonLine(Writer writer, Object[] row) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(row[0].toString());
+        writer.write(",\"type\":\"");
+        writer.write(row[1].toString());
+        writer.write("\",\"amount\":");
+        writer.write(text(row[2]));
+        writer.write(",\"createdAt\":\"");
+        writer.write(row[3].toString());
+        writer.write("\",\"fromAccountId\":");
+        writer.write(String.valueOf(row[4]));
+        writer.write(",\"toAccountId\":");
+        writer.write(String.valueOf(row[5]));
+        writer.write("}\n");
+    }
+
+    private static String text(Object value) {
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package by.slava_borisov.impl;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.TransferFailurePolicy;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.service.AccountService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Profile(Profiles.DATABASE)
+@Service
+@AllArgsConstructor
+public class DaoAccountServiceImpl implements AccountService {
+
+    private final AccountDao accountDao;
+
+    public OperationResult createAccount(Long userId) {
+        return accountDao.createAccount(userId);
+    }
+
+
+    public OperationResult closeAccount(Long accountId) {
+        return accountDao.closeAccount(accountId);
+    }
+
+    public OperationResult accountDeposit(Long accountId, BigDecimal amount) {
+        return accountDao.deposit(accountId, amount);
+    }
+
+    public OperationResult accountTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        return accountDao.transfer(senderAccountId, recipientAccountId, amount);
+    }
+
+    public OperationResult accountWithDraw(Long accountId, BigDecimal amount) {
+        return accountDao.withdraw(accountId, amount);
+    }
+
+    public BulkTransferResult accountBulkTransfer(List<TransferInstruction> transfers, TransferFailurePolicy policy) {
+        return accountDao.transferAll(transfers, policy);
+    }
+
+}
@@ -0,0 +1,39 @@
+package by.slava_borisov.impl;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.StatementDao;
+import by.slava_borisov.dao.TransactionDao;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.StatementLine;
+import by.slava_borisov.dto.StatementSummary;
+import by.slava_borisov.dto.TransactionFilter;
+import by.slava_borisov.dto.TransactionView;
+import by.slava_borisov.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+@Profile(Profiles.DATABASE)
+@Service
+@RequiredArgsConstructor
+public class DaoTransactionServiceImpl implements TransactionService {
+
+    private final TransactionDao transactionDao;
+    private final StatementDao statementDao;
+
+    @Value("${bank.history.page-size:50}")
+    private int pageSize;
+
+    public Page<TransactionView> getTransactions(TransactionFilter filter, Long afterId) {
+        return transactionDao.findTransactions(filter, afterId, pageSize);
+    }
+
+    public StatementSummary accountStatement(Long accountId, LocalDate from, LocalDate to,
+                                             Consumer<StatementLine> sink) {
+        return statementDao.streamStatement(accountId, from, to, sink);
+    }
+}
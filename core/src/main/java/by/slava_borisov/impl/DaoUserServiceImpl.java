@@ -0,0 +1,31 @@
+package by.slava_borisov.impl;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.UserView;
+import by.slava_borisov.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+@Profile(Profiles.DATABASE)
+@Service
+@RequiredArgsConstructor
+public class DaoUserServiceImpl implements UserService {
+
+    private final UserDao userDao;
+
+    @Value("${bank.users.page-size:50}")
+    private int pageSize;
+
+    public OperationResult createUser(String login) {
+        return userDao.addUser(login);
+    }
+
+    public Page<UserView> getUsers(Long afterId) {
+        return userDao.findUsers(afterId, pageSize);
+    }
+}
@@ -0,0 +1,48 @@
+package by.slava_borisov.impl;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.TransferFailurePolicy;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.ledger.LedgerEngine;
+import by.slava_borisov.service.AccountService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Profile(Profiles.IN_MEMORY)
+@Service
+@AllArgsConstructor
+public class LedgerEngineAccountServiceImpl implements AccountService {
+
+    private final LedgerEngine ledgerEngine;
+
+    public OperationResult createAccount(Long userId) {
+        return ledgerEngine.createAccount(userId);
+    }
+
+    public OperationResult closeAccount(Long accountId) {
+        return ledgerEngine.closeAccount(accountId);
+    }
+
+    public OperationResult accountDeposit(Long accountId, BigDecimal amount) {
+        return ledgerEngine.deposit(accountId, amount);
+    }
+
+    public OperationResult accountTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount) {
+        return ledgerEngine.transfer(senderAccountId, recipientAccountId, amount);
+    }
+
+    public OperationResult accountWithDraw(Long accountId, BigDecimal amount) {
+        return ledgerEngine.withdraw(accountId, amount);
+    }
+
+    public BulkTransferResult accountBulkTransfer(List<TransferInstruction> transfers, TransferFailurePolicy policy) {
+        return ledgerEngine.transferAll(transfers, policy);
+    }
+
+}
@@ -0,0 +1,173 @@
+package by.slava_borisov.impl;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.ReconciliationDao;
+import by.slava_borisov.dto.LedgerDelta;
+import by.slava_borisov.dto.ReconciliationMismatch;
+import by.slava_borisov.dto.ReconciliationReport;
+import by.slava_borisov.hibernate.entity.AccountSnapshot;
+import by.slava_borisov.service.ReconciliationService;
+import by.slava_borisov.util.TransactionHelper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Сверка балансов с журналом поверх снимков.
+ * <p>
+ * Снимок хранит сумму журнала по счёту до записи {@code lastTransactionId}, поэтому
+ * проверка проигрывает только более поздние записи. ID записей выдаются пулами и не
+ * упорядочены по времени фиксации: запись с меньшим ID может зафиксироваться уже после
+ * снимка и выпасть из сверки. Поэтому каждое расхождение перепроверяется полным
+ * проигрыванием журнала под блокировкой счёта, а снимок при этом пересчитывается заново.
+ */
+@Profile(Profiles.DATABASE)
+@Service
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    private final ReconciliationDao reconciliationDao;
+    private final TransactionHelper transactionHelper;
+    private final int parallelism;
+    private final int rangeSize;
+
+    public ReconciliationServiceImpl(ReconciliationDao reconciliationDao,
+                                     TransactionHelper transactionHelper,
+                                     @Value("${bank.reconciliation.parallelism:0}") int parallelism,
+                                     @Value("${bank.reconciliation.range-size:1000}") int rangeSize,
+                                     @Value("${db.pool.maximum-size:10}") int poolSize) {
+        this.reconciliationDao = reconciliationDao;
+        this.transactionHelper = transactionHelper;
+        // каждый поток держит соединение, больше потоков, чем соединений в пуле, не нужно
+        this.parallelism = parallelism > 0 ? parallelism
+                : Math.min(Runtime.getRuntime().availableProcessors(), poolSize);
+        this.rangeSize = Math.max(1, rangeSize);
+    }
+
+    @Override
+    public ReconciliationMismatch verifyAccount(Long accountId) {
+        BigDecimal balance = reconciliationDao.findBalances(accountId, accountId).get(accountId);
+        if (balance == null) {
+            throw new IllegalArgumentException("Счёт с ID " + accountId + " не найден");
+        }
+        AccountSnapshot snapshot = reconciliationDao.findSnapshots(accountId, accountId).get(accountId);
+        LedgerDelta delta = reconciliationDao.findDelta(accountId,
+                snapshot != null ? snapshot.getLastTransactionId() : 0);
+        Tally tally = new Tally();
+        check(accountId, balance, snapshot, delta, tally);
+        return tally.mismatches.isEmpty() ? null : tally.mismatches.get(0);
+    }
+
+    @Override
+    public ReconciliationReport reconcileAll() {
+        long start = System.currentTimeMillis();
+        long[] bounds = reconciliationDao.findAccountIdRange();
+        Tally tally = new Tally();
+        if (bounds != null) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                tally = pool.invoke(new RangeTask(bounds[0], bounds[1]));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        tally.mismatches.sort(Comparator.comparing(ReconciliationMismatch::getAccountId));
+        return new ReconciliationReport(tally.accounts, tally.rows, tally.mismatches,
+                System.currentTimeMillis() - start);
+    }
+
+    private Tally reconcileRange(long fromId, long toId) {
+        Map<Long, BigDecimal> balances = reconciliationDao.findBalances(fromId, toId);
+        if (balances.isEmpty()) {
+            return new Tally();
+        }
+        Map<Long, AccountSnapshot> snapshots = reconciliationDao.findSnapshots(fromId, toId);
+        Map<Long, LedgerDelta> deltas = reconciliationDao.findDeltasAfterSnapshots(fromId, toId);
+
+        Tally tally = new Tally();
+        balances.forEach((accountId, balance) -> check(accountId, balance, snapshots.get(accountId),
+                deltas.getOrDefault(accountId, LedgerDelta.NONE), tally));
+        return tally;
+    }
+
+    private void check(Long accountId, BigDecimal balance, AccountSnapshot snapshot, LedgerDelta delta, Tally tally) {
+        tally.accounts++;
+        tally.rows += delta.getRows();
+        BigDecimal expected = (snapshot != null ? snapshot.getBalance() : BigDecimal.ZERO).add(delta.getAmount());
+        if (expected.compareTo(balance) == 0) {
+            if (delta.getRows() > 0) {
+                reconciliationDao.saveSnapshot(accountId, expected,
+                        Math.max(snapshot != null ? snapshot.getLastTransactionId() : 0, delta.getLastTransactionId()));
+            }
+            return;
+        }
+        ReconciliationMismatch mismatch = replayLocked(accountId, tally);
+        if (mismatch != null) {
+            tally.mismatches.add(mismatch);
+        }
+    }
+
+    /**
+     * Проигрывает весь журнал счёта, пока счёт заблокирован: незафиксированных записей по нему
+     * в этот момент нет, так что результат точный и годится для нового снимка.
+     */
+    private ReconciliationMismatch replayLocked(Long accountId, Tally tally) {
+        return transactionHelper.executeInTransaction(session -> {
+            BigDecimal balance = reconciliationDao.lockBalance(accountId);
+            LedgerDelta ledger = reconciliationDao.findDelta(accountId, 0);
+            tally.rows += ledger.getRows();
+            if (balance == null) {
+                return null;
+            }
+            if (ledger.getAmount().compareTo(balance) != 0) {
+                return new ReconciliationMismatch(accountId, balance, ledger.getAmount());
+            }
+            reconciliationDao.saveSnapshot(accountId, ledger.getAmount(), ledger.getLastTransactionId());
+            return null;
+        });
+    }
+
+    private static final class Tally {
+
+        long accounts;
+        long rows;
+        final List<ReconciliationMismatch> mismatches = new ArrayList<>();
+
+        Tally merge(Tally other) {
+            accounts += other.accounts;
+            rows += other.rows;
+            mismatches.addAll(other.mismatches);
+            return this;
+        }
+    }
+
+    private final class RangeTask extends RecursiveTask<Tally> {
+
+        private final long fromId;
+        private final long toId;
+
+        RangeTask(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (toId - fromId < rangeSize) {
+                return reconcileRange(fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(fromId, middle);
+            left.fork();
+            Tally right = new RangeTask(middle + 1, toId).compute();
+            return left.join().merge(right);
+        }
+    }
+}
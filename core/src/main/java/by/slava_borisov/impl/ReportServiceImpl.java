@@ -0,0 +1,58 @@
+package by.slava_borisov.impl;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.ReportDao;
+import by.slava_borisov.dto.DailyTotal;
+import by.slava_borisov.dto.ReportFilter;
+import by.slava_borisov.dto.TypeTotal;
+import by.slava_borisov.service.ReportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Отчёты по журналу. При включённой свёртке завершённые дни перед каждым отчётом досворачиваются
+ * в дневные итоги, и журнал агрегируется только за дни после последней свёртки.
+ * <p>
+ * День считается завершённым спустя {@code bank.reports.rollup.lag-minutes} после полуночи:
+ * время записи журнала берётся до фиксации, и транзакция, начатая до полуночи, может
+ * зафиксироваться чуть позже. Запись, зафиксированная после свёртки своего дня, в итоги не попадёт.
+ */
+@Profile(Profiles.DATABASE)
+@Service
+public class ReportServiceImpl implements ReportService {
+
+    private final ReportDao reportDao;
+    private final boolean rollupEnabled;
+    private final long lagMinutes;
+
+    public ReportServiceImpl(ReportDao reportDao,
+                             @Value("${bank.reports.rollup.enabled:true}") boolean rollupEnabled,
+                             @Value("${bank.reports.rollup.lag-minutes:5}") long lagMinutes) {
+        this.reportDao = reportDao;
+        this.rollupEnabled = rollupEnabled;
+        this.lagMinutes = lagMinutes;
+    }
+
+    @Override
+    public List<DailyTotal> getDailyTotals(ReportFilter filter) {
+        return reportDao.findDailyTotals(filter, rollUp());
+    }
+
+    @Override
+    public List<TypeTotal> getTypeTotals(ReportFilter filter) {
+        return reportDao.findTypeTotals(filter, rollUp());
+    }
+
+    @Override
+    public LocalDate rollUp() {
+        if (!rollupEnabled) {
+            return null;
+        }
+        return reportDao.rollUp(LocalDateTime.now().minusMinutes(lagMinutes).toLocalDate().minusDays(1));
+    }
+}
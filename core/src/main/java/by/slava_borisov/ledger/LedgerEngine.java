@@ -0,0 +1,649 @@
+package by.slava_borisov.ledger;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.TransferFailurePolicy;
+import by.slava_borisov.dto.AccountView;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.dto.UserView;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.money.FeeRate;
+import by.slava_borisov.money.Money;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Банк в памяти процесса для профиля {@link Profiles#IN_MEMORY}.
+ * <p>
+ * Пользователи и счета получают ID подряд с единицы, поэтому хранятся в плотных массивах
+ * примитивов с индексом {@code ID - 1}: баланс в копейках, владелец, признак закрытия.
+ * Все операции выполняет один поток-писатель: вызывающий поток ставит операцию в очередь
+ * и ждёт результата, а писатель забирает из очереди сразу пачку операций. Изменение сначала
+ * проверяется, затем дописывается в {@link WriteAheadLog} и только потом применяется; журнал
+ * фиксируется один раз на пачку, и лишь после этого вызывающие потоки получают результаты.
+ * При запуске состояние восстанавливается проигрыванием журнала теми же методами применения.
+ * <p>
+ * Сбой фиксации журнала или любая ошибка потока-писателя останавливают банк: операции пачки
+ * уже применены и могли попасть в журнал, поэтому их вызывающие получают
+ * {@link IllegalStateException} с причиной сбоя, а операции из очереди и новые отклоняются.
+ * <p>
+ * Правила операций и причины отказов те же, что у {@link by.slava_borisov.dao.AccountDao}.
+ */
+@Profile(Profiles.IN_MEMORY)
+@Component
+public class LedgerEngine implements AutoCloseable {
+
+    private static final byte USER_CREATED = 1;
+    private static final byte ACCOUNT_CREATED = 2;
+    private static final byte ACCOUNT_CLOSED = 3;
+    private static final byte DEPOSIT = 4;
+    private static final byte WITHDRAW = 5;
+    private static final byte TRANSFER = 6;
+    private static final byte BULK_TRANSFER = 7;
+
+    private static final int TRANSFER_SIZE = 4 * Long.BYTES;
+    private static final Command<Object> STOP = new Command<>(null);
+
+    private static final Logger log = LogManager.getLogger(LedgerEngine.class);
+
+    private final OperationMetrics operationMetrics;
+    private final FeeRate feeRate;
+    private final long defaultBalance;
+    private final int maxBatchSize;
+    private final WriteAheadLog wal;
+
+    private final LongList balances = new LongList(1024);
+    private final LongList owners = new LongList(1024);
+    private final BitSet closed = new BitSet();
+    private final List<String> logins = new ArrayList<>();
+    private final List<LongList> userAccounts = new ArrayList<>();
+    private final Map<String, Long> usersByLogin = new HashMap<>();
+    private long feesCollected;
+
+    // прежние балансы счетов пакета переводов парами «индекс, баланс» для отката
+    private final LongList undo = new LongList(64);
+
+    private final BlockingQueue<Command<?>> queue = new LinkedBlockingQueue<>();
+    private final Object submitLock = new Object();
+    private final Thread writer;
+    private boolean stopped;
+    private boolean shutdown;
+
+    public LedgerEngine(OperationMetrics operationMetrics,
+                        @Value("${bank.in-memory.wal.file:data/ledger.wal}") String walFile,
+                        @Value("${bank.in-memory.wal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${bank.in-memory.wal.sync:false}") boolean sync,
+                        @Value("${bank.in-memory.max-batch-size:256}") int maxBatchSize,
+                        @Value("${bank.fee}") BigDecimal fee,
+                        @Value("${bank.default.balance}") BigDecimal defaultBalance) {
+        this.operationMetrics = operationMetrics;
+        this.feeRate = FeeRate.of(fee);
+        this.defaultBalance = Money.of(defaultBalance).getMinorUnits();
+        this.maxBatchSize = maxBatchSize;
+        this.wal = new WriteAheadLog(Path.of(walFile), segmentSizeMb << 20, sync);
+        try {
+            wal.replay(this::replay);
+        } catch (RuntimeException e) {
+            wal.close();
+            throw e;
+        }
+        writer = new Thread(this::run, "ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Регистрирует пользователя вместе с его первым счётом.
+     */
+    public OperationResult createUser(String login) {
+        OperationResult result = OperationResult.builder().operation(Operation.CREATE_USER).build();
+        return operationMetrics.time(Operation.CREATE_USER, () -> execute(() -> {
+            if (usersByLogin.containsKey(login)) {
+                return rejected(result, FailureReason.LOGIN_TAKEN);
+            }
+            long userId = logins.size() + 1;
+            long accountId = balances.size() + 1;
+            byte[] bytes = login.getBytes(StandardCharsets.UTF_8);
+            wal.begin(1 + 3 * Long.BYTES + Integer.BYTES + bytes.length)
+                    .put(USER_CREATED)
+                    .putLong(userId)
+                    .putLong(accountId)
+                    .putLong(defaultBalance)
+                    .putInt(bytes.length)
+                    .put(bytes);
+            wal.end();
+            applyUserCreated(userId, accountId, defaultBalance, login);
+            return result.withUserId(userId).withAccountId(accountId).withAmount(toBigDecimal(defaultBalance));
+        }), OperationResult::isSuccess);
+    }
+
+    public OperationResult createAccount(Long userId) {
+        OperationResult result = request(Operation.CREATE_ACCOUNT, null, null, null).withUserId(userId);
+        return operationMetrics.time(Operation.CREATE_ACCOUNT, () -> execute(() -> {
+            if (userId == null || userId < 1 || userId > logins.size()) {
+                return rejected(result, FailureReason.USER_NOT_FOUND);
+            }
+            long accountId = balances.size() + 1;
+            wal.begin(1 + 3 * Long.BYTES)
+                    .put(ACCOUNT_CREATED)
+                    .putLong(accountId)
+                    .putLong(userId)
+                    .putLong(defaultBalance);
+            wal.end();
+            applyAccountCreated(accountId, userId, defaultBalance);
+            return result.withAccountId(accountId).withAmount(toBigDecimal(defaultBalance));
+        }), OperationResult::isSuccess);
+    }
+
+    /**
+     * Закрывает счёт и переводит его остаток на первый другой открытый счёт владельца.
+     */
+    public OperationResult closeAccount(Long accountId) {
+        OperationResult result = request(Operation.CLOSE_ACCOUNT, accountId, null, null);
+        return operationMetrics.time(Operation.CLOSE_ACCOUNT, () -> execute(() -> {
+            int account = indexOf(accountId);
+            if (account < 0) {
+                return rejected(result, FailureReason.ACCOUNT_NOT_FOUND);
+            }
+            if (closed.get(account)) {
+                return rejected(result, FailureReason.ACCOUNT_CLOSED);
+            }
+            long userId = owners.get(account);
+            LongList accounts = userAccounts.get((int) userId - 1);
+            long targetId = 0;
+            for (int i = 0; i < accounts.size() && targetId == 0; i++) {
+                long id = accounts.get(i);
+                if (id != accountId && !closed.get((int) id - 1)) {
+                    targetId = id;
+                }
+            }
+            if (targetId == 0) {
+                return rejected(result, FailureReason.LAST_ACTIVE_ACCOUNT);
+            }
+            long balance = balances.get(account);
+            // переполнение баланса — ошибка, как и переполнение колонки баланса в базе
+            Math.addExact(balances.get((int) targetId - 1), balance);
+            wal.begin(1 + 2 * Long.BYTES)
+                    .put(ACCOUNT_CLOSED)
+                    .putLong(accountId)
+                    .putLong(targetId);
+            wal.end();
+            applyAccountClosed(accountId, targetId);
+            return result.withUserId(userId).withTargetAccountId(targetId).withAmount(toBigDecimal(balance));
+        }), OperationResult::isSuccess);
+    }
+
+    public OperationResult deposit(Long accountId, BigDecimal amount) {
+        OperationResult result = request(Operation.DEPOSIT, accountId, null, amount);
+        return operationMetrics.time(Operation.DEPOSIT, () -> {
+            Money deposited = validAmount(amount);
+            if (deposited == null) {
+                return rejected(result, FailureReason.INVALID_AMOUNT);
+            }
+            return execute(() -> {
+                int account = indexOf(accountId);
+                if (account < 0 || closed.get(account)) {
+                    return rejected(result,
+                            account < 0 ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED);
+                }
+                // переполнение баланса — ошибка, как и переполнение колонки баланса в базе
+                Math.addExact(balances.get(account), deposited.getMinorUnits());
+                wal.begin(1 + 2 * Long.BYTES)
+                        .put(DEPOSIT)
+                        .putLong(accountId)
+                        .putLong(deposited.getMinorUnits());
+                wal.end();
+                applyDeposit(accountId, deposited.getMinorUnits());
+                return result;
+            });
+        }, OperationResult::isSuccess);
+    }
+
+    public OperationResult withdraw(Long accountId, BigDecimal amount) {
+        OperationResult result = request(Operation.WITHDRAW, accountId, null, amount);
+        return operationMetrics.time(Operation.WITHDRAW, () -> {
+            Money withdrawn = validAmount(amount);
+            if (withdrawn == null) {
+                return rejected(result, FailureReason.INVALID_AMOUNT);
+            }
+            return execute(() -> {
+                int account = indexOf(accountId);
+                if (account < 0) {
+                    return rejected(result, FailureReason.ACCOUNT_NOT_FOUND);
+                }
+                if (closed.get(account)) {
+                    return rejected(result, FailureReason.ACCOUNT_CLOSED);
+                }
+                if (balances.get(account) < withdrawn.getMinorUnits()) {
+                    return rejected(result, FailureReason.INSUFFICIENT_FUNDS);
+                }
+                wal.begin(1 + 2 * Long.BYTES)
+                        .put(WITHDRAW)
+                        .putLong(accountId)
+                        .putLong(withdrawn.getMinorUnits());
+                wal.end();
+                applyWithdraw(accountId, withdrawn.getMinorUnits());
+                return result;
+            });
+        }, OperationResult::isSuccess);
+    }
+
+    public OperationResult transfer(Long senderId, Long recipientId, BigDecimal amount) {
+        OperationResult result = request(Operation.TRANSFER, senderId, recipientId, amount);
+        Money transferred = validAmount(amount);
+        return operationMetrics.time(Operation.TRANSFER, () -> execute(() -> {
+            int sender = indexOf(senderId);
+            int recipient = indexOf(recipientId);
+            if (sender < 0 || recipient < 0 || closed.get(sender) || closed.get(recipient)) {
+                return rejected(result, sender < 0 || recipient < 0
+                        ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED);
+            }
+            if (transferred == null) {
+                return rejected(result, FailureReason.INVALID_AMOUNT);
+            }
+            long minorUnits = transferred.getMinorUnits();
+            long fee = feeOf(sender, recipient, minorUnits);
+            if (!canTransfer(sender, recipient, minorUnits, fee)) {
+                return rejected(result, FailureReason.INSUFFICIENT_FUNDS);
+            }
+            appendTransfer(wal.begin(1 + TRANSFER_SIZE).put(TRANSFER), senderId, recipientId, minorUnits, fee);
+            wal.end();
+            applyTransfer(sender, recipient, minorUnits, fee);
+            return result.withFee(toBigDecimal(fee));
+        }), OperationResult::isSuccess);
+    }
+
+    /**
+     * Выполняет пакет переводов одной записью журнала. Балансы меняются по порядку инструкций,
+     * а при {@link TransferFailurePolicy#ALL_OR_NOTHING} с отказами или при сбое записи
+     * возвращаются к прежним значениям.
+     */
+    public BulkTransferResult transferAll(List<TransferInstruction> transfers, TransferFailurePolicy policy) {
+        return operationMetrics.time(Operation.BULK_TRANSFER, () -> execute(() -> {
+            Map<Integer, FailureReason> rejected = new LinkedHashMap<>();
+            long feesBefore = feesCollected;
+            long fees = 0;
+            int applied = 0;
+            undo.clear();
+
+            ByteBuffer record = wal.begin(1 + Integer.BYTES + transfers.size() * TRANSFER_SIZE);
+            int countOffset = record.position() + 1;
+            record.put(BULK_TRANSFER).putInt(0);
+            try {
+                for (int i = 0; i < transfers.size(); i++) {
+                    TransferInstruction transfer = transfers.get(i);
+                    int sender = indexOf(transfer.getFromAccountId());
+                    int recipient = indexOf(transfer.getToAccountId());
+                    Money amount = validAmount(transfer.getAmount());
+
+                    if (sender < 0 || recipient < 0 || closed.get(sender) || closed.get(recipient)) {
+                        FailureReason reason = sender < 0 || recipient < 0
+                                ? FailureReason.ACCOUNT_NOT_FOUND : FailureReason.ACCOUNT_CLOSED;
+                        rejected.put(i, reason);
+                        operationMetrics.reject(Operation.BULK_TRANSFER, reason);
+                        continue;
+                    }
+                    if (amount == null) {
+                        rejected.put(i, FailureReason.INVALID_AMOUNT);
+                        operationMetrics.reject(Operation.BULK_TRANSFER, FailureReason.INVALID_AMOUNT);
+                        continue;
+                    }
+                    long minorUnits = amount.getMinorUnits();
+                    long fee = feeOf(sender, recipient, minorUnits);
+                    if (!canTransfer(sender, recipient, minorUnits, fee)) {
+                        rejected.put(i, FailureReason.INSUFFICIENT_FUNDS);
+                        operationMetrics.reject(Operation.BULK_TRANSFER, FailureReason.INSUFFICIENT_FUNDS);
+                        continue;
+                    }
+
+                    undo.add(sender);
+                    undo.add(balances.get(sender));
+                    undo.add(recipient);
+                    undo.add(balances.get(recipient));
+                    applyTransfer(sender, recipient, minorUnits, fee);
+                    appendTransfer(record, transfer.getFromAccountId(), transfer.getToAccountId(), minorUnits, fee);
+                    applied++;
+                    fees += fee;
+                }
+
+                if (policy == TransferFailurePolicy.ALL_OR_NOTHING && !rejected.isEmpty()) {
+                    rollBack(feesBefore);
+                    wal.abort();
+                    return new BulkTransferResult(0, rejected, BigDecimal.ZERO);
+                }
+                if (applied == 0) {
+                    wal.abort();
+                } else {
+                    record.putInt(countOffset, applied);
+                    wal.end();
+                }
+            } catch (RuntimeException e) {
+                rollBack(feesBefore);
+                wal.abort();
+                throw e;
+            }
+            return new BulkTransferResult(applied, rejected, toBigDecimal(fees));
+        }), BulkTransferResult::isFullyApplied);
+    }
+
+    /**
+     * Страница пользователей со счетами после пользователя {@code afterId}.
+     */
+    public Page<UserView> findUsers(Long afterId, int pageSize) {
+        return execute(() -> {
+            int from = afterId == null ? 0 : (int) Math.min(Math.max(afterId, 0), logins.size());
+            int to = (int) Math.min((long) from + pageSize, logins.size());
+            List<UserView> items = new ArrayList<>(to - from);
+            for (int user = from; user < to; user++) {
+                LongList accountIds = userAccounts.get(user);
+                List<AccountView> accounts = new ArrayList<>(accountIds.size());
+                for (int i = 0; i < accountIds.size(); i++) {
+                    int account = (int) accountIds.get(i) - 1;
+                    accounts.add(new AccountView(accountIds.get(i), toBigDecimal(balances.get(account)),
+                            closed.get(account)));
+                }
+                items.add(new UserView((long) user + 1, logins.get(user), accounts));
+            }
+            return new Page<>(items, to < logins.size() ? (long) to : null);
+        });
+    }
+
+    /**
+     * @return баланс счёта или {@code null}, если счёта нет
+     */
+    public BigDecimal getBalance(Long accountId) {
+        return execute(() -> {
+            int account = indexOf(accountId);
+            return account < 0 ? null : toBigDecimal(balances.get(account));
+        });
+    }
+
+    /**
+     * Комиссии, списанные со счетов за всё время, включая проигранные из журнала.
+     */
+    public BigDecimal getFeesCollected() {
+        return execute(() -> toBigDecimal(feesCollected));
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        synchronized (submitLock) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            // писатель мог уже остановиться после сбоя, тогда STOP просто останется в очереди
+            stopped = true;
+            queue.add(STOP);
+        }
+        writer.join();
+        wal.close();
+    }
+
+    private <T> T execute(Supplier<T> action) {
+        Command<T> command = new Command<>(action);
+        synchronized (submitLock) {
+            if (stopped) {
+                throw new IllegalStateException("Банк в памяти остановлен");
+            }
+            queue.add(command);
+        }
+        try {
+            return command.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Command<?>> batch = new ArrayList<>(maxBatchSize);
+        IllegalStateException failure = new IllegalStateException("Банк в памяти остановлен");
+        try {
+            boolean stopping = false;
+            while (!stopping) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatchSize - 1);
+                } catch (InterruptedException e) {
+                    stopping = true;
+                }
+                for (Command<?> command : batch) {
+                    if (command == STOP) {
+                        stopping = true;
+                    } else {
+                        command.run();
+                    }
+                }
+                // одна фиксация журнала на всю пачку, результаты отдаются только после неё
+                wal.commit();
+                for (Command<?> command : batch) {
+                    command.complete();
+                }
+                batch.clear();
+            }
+        } catch (Throwable e) {
+            log.error("Сбой журнала банка в памяти, банк остановлен", e);
+            failure = new IllegalStateException("Журнал банка в памяти недоступен, банк остановлен", e);
+        } finally {
+            synchronized (submitLock) {
+                stopped = true;
+            }
+            // после остановки очередь больше не пополняется, и каждый ожидающий получает ответ
+            for (Command<?> command : batch) {
+                command.result.completeExceptionally(failure);
+            }
+            for (Command<?> command = queue.poll(); command != null; command = queue.poll()) {
+                command.result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void replay(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case USER_CREATED -> {
+                long userId = record.getLong();
+                long accountId = record.getLong();
+                long balance = record.getLong();
+                byte[] login = new byte[record.getInt()];
+                record.get(login);
+                applyUserCreated(userId, accountId, balance, new String(login, StandardCharsets.UTF_8));
+            }
+            case ACCOUNT_CREATED -> applyAccountCreated(record.getLong(), record.getLong(), record.getLong());
+            case ACCOUNT_CLOSED -> applyAccountClosed(record.getLong(), record.getLong());
+            case DEPOSIT -> applyDeposit(record.getLong(), record.getLong());
+            case WITHDRAW -> applyWithdraw(record.getLong(), record.getLong());
+            case TRANSFER -> replayTransfer(record);
+            case BULK_TRANSFER -> {
+                for (int count = record.getInt(); count > 0; count--) {
+                    replayTransfer(record);
+                }
+            }
+            default -> throw new IllegalStateException("Неизвестная запись журнала: " + type);
+        }
+    }
+
+    private void replayTransfer(ByteBuffer record) {
+        int sender = existing(record.getLong());
+        int recipient = existing(record.getLong());
+        applyTransfer(sender, recipient, record.getLong(), record.getLong());
+    }
+
+    private void applyUserCreated(long userId, long accountId, long balance, String login) {
+        if (userId != logins.size() + 1) {
+            throw new IllegalStateException("Журнал не согласован: пользователь " + userId);
+        }
+        logins.add(login);
+        usersByLogin.put(login, userId);
+        userAccounts.add(new LongList(2));
+        applyAccountCreated(accountId, userId, balance);
+    }
+
+    private void applyAccountCreated(long accountId, long userId, long balance) {
+        if (accountId != balances.size() + 1 || userId < 1 || userId > logins.size()) {
+            throw new IllegalStateException("Журнал не согласован: счёт " + accountId);
+        }
+        balances.add(balance);
+        owners.add(userId);
+        userAccounts.get((int) userId - 1).add(accountId);
+    }
+
+    private void applyAccountClosed(long accountId, long targetId) {
+        int account = existing(accountId);
+        int target = existing(targetId);
+        balances.set(target, balances.get(target) + balances.get(account));
+        balances.set(account, 0);
+        closed.set(account);
+    }
+
+    private void applyDeposit(long accountId, long amount) {
+        int account = existing(accountId);
+        balances.set(account, balances.get(account) + amount);
+    }
+
+    private void applyWithdraw(long accountId, long amount) {
+        int account = existing(accountId);
+        balances.set(account, balances.get(account) - amount);
+    }
+
+    private void applyTransfer(int sender, int recipient, long amount, long fee) {
+        balances.set(sender, balances.get(sender) - amount - fee);
+        balances.set(recipient, balances.get(recipient) + amount);
+        feesCollected += fee;
+    }
+
+    private void rollBack(long feesBefore) {
+        for (int i = undo.size() - 2; i >= 0; i -= 2) {
+            balances.set((int) undo.get(i), undo.get(i + 1));
+        }
+        undo.clear();
+        feesCollected = feesBefore;
+    }
+
+    private static void appendTransfer(ByteBuffer record, long senderId, long recipientId, long amount, long fee) {
+        record.putLong(senderId).putLong(recipientId).putLong(amount).putLong(fee);
+    }
+
+    private long feeOf(int sender, int recipient, long amount) {
+        return owners.get(sender) != owners.get(recipient) ? feeRate.feeOf(amount) : 0;
+    }
+
+    /**
+     * Хватает ли отправителю на сумму с комиссией. Переполнение баланса получателя —
+     * ошибка, как и переполнение колонки баланса в базе.
+     */
+    private boolean canTransfer(int sender, int recipient, long amount, long fee) {
+        if (balances.get(sender) < Math.addExact(amount, fee)) {
+            return false;
+        }
+        if (sender != recipient) {
+            Math.addExact(balances.get(recipient), amount);
+        }
+        return true;
+    }
+
+    /**
+     * @return индекс счёта в массивах или {@code -1}, если счёта нет
+     */
+    private int indexOf(Long accountId) {
+        if (accountId == null || accountId < 1 || accountId > balances.size()) {
+            return -1;
+        }
+        return (int) (accountId - 1);
+    }
+
+    private int existing(long accountId) {
+        int account = indexOf(accountId);
+        if (account < 0) {
+            throw new IllegalStateException("Журнал не согласован: нет счёта " + accountId);
+        }
+        return account;
+    }
+
+    private OperationResult rejected(OperationResult result, FailureReason reason) {
+        operationMetrics.reject(result.getOperation(), reason);
+        return result.withFailure(reason);
+    }
+
+    private static OperationResult request(Operation operation, Long accountId, Long targetAccountId,
+                                           BigDecimal amount) {
+        return OperationResult.builder()
+                .operation(operation)
+                .accountId(accountId)
+                .targetAccountId(targetAccountId)
+                .amount(amount)
+                .build();
+    }
+
+    /**
+     * Сумма операции в копейках или {@code null}, если она не задана, не положительна или точнее копейки.
+     */
+    private static Money validAmount(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return null;
+        }
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(long minorUnits) {
+        return Money.ofMinor(minorUnits).toBigDecimal();
+    }
+
+    private static final class Command<T> {
+
+        private final Supplier<T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private RuntimeException failure;
+
+        private Command(Supplier<T> action) {
+            this.action = action;
+        }
+
+        private void run() {
+            try {
+                value = action.get();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package by.slava_borisov.ledger;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Растущий список примитивных {@code long} без упаковки в {@link Long}.
+ */
+final class LongList {
+
+    private long[] values;
+    private int size;
+
+    LongList(int capacity) {
+        values = new long[Math.max(capacity, 1)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return values[Objects.checkIndex(index, size)];
+    }
+
+    void set(int index, long value) {
+        values[Objects.checkIndex(index, size)] = value;
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,241 @@
+package by.slava_borisov.ledger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал упреждающей записи в файле, отображённом в память.
+ * <p>
+ * Файл делится на области по {@code segmentSize} байт, каждая отображается целиком. Запись —
+ * {@code [длина][CRC32C][данные]}, длина пишется последней, поэтому запись, оборванная сбоем,
+ * при чтении видна как нулевая длина или несовпадение контрольной суммы. Запись не пересекает
+ * границу области: если места не хватает, в остаток области пишется длина {@code -1} и запись
+ * переносится в следующую. Нулевая длина означает конец журнала.
+ * <p>
+ * Без {@code sync} запись попадает в страничный кэш ОС и переживает падение процесса, но не
+ * отключение питания; с {@code sync} {@link #commit()} сбрасывает на диск всё записанное с
+ * прошлой фиксации. Класс не потокобезопасен: журнал пишет один поток.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    static final int HEADER_SIZE = 8;
+
+    private static final int SKIP = -1;
+
+    private static final Logger log = LogManager.getLogger(WriteAheadLog.class);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final boolean sync;
+    private final CRC32C crc = new CRC32C();
+
+    private MappedByteBuffer region;
+    private long regionIndex;
+    private int recordStart = -1;
+    private int dirtyFrom;
+
+    WriteAheadLog(Path file, int segmentSize, boolean sync) {
+        if (segmentSize < 64) {
+            throw new IllegalArgumentException("Слишком маленькая область журнала: " + segmentSize);
+        }
+        this.file = file;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал " + file, e);
+        }
+    }
+
+    /**
+     * Читает журнал с начала и передаёт данные каждой целой записи обработчику. Повреждённый
+     * хвост — запись, оборванная сбоем, — затирается, и следующая запись ляжет на его место.
+     *
+     * @return число прочитанных записей
+     */
+    long replay(Consumer<ByteBuffer> handler) {
+        long records = 0;
+        try {
+            regionIndex = 0;
+            region = map(0);
+            int position = 0;
+            while (true) {
+                if (segmentSize - position < HEADER_SIZE) {
+                    if (!nextRegionExists()) {
+                        break;
+                    }
+                    position = 0;
+                    continue;
+                }
+                int length = region.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+                if (length == SKIP) {
+                    if (!nextRegionExists()) {
+                        break;
+                    }
+                    position = 0;
+                    continue;
+                }
+                if (length < 0 || length > segmentSize - position - HEADER_SIZE
+                        || checksum(position + HEADER_SIZE, length) != region.getInt(position + 4)) {
+                    log.warn("Журнал {} обрезан на позиции {}: запись повреждена", file,
+                            regionIndex * segmentSize + position);
+                    break;
+                }
+                handler.accept(region.slice(position + HEADER_SIZE, length).asReadOnlyBuffer());
+                position += HEADER_SIZE + length;
+                records++;
+            }
+            clearTail(position);
+            long end = (regionIndex + 1) * segmentSize;
+            if (channel.size() > end) {
+                channel.truncate(end);
+            }
+            region.position(position);
+            dirtyFrom = position;
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал", e);
+        }
+    }
+
+    /**
+     * Начинает запись из {@code payloadSize} байт данных.
+     *
+     * @return буфер, в который данные пишутся с текущей позиции; запись завершает {@link #end()}
+     */
+    ByteBuffer begin(int payloadSize) {
+        if (payloadSize <= 0 || payloadSize > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Запись размером " + payloadSize
+                    + " байт не помещается в область журнала");
+        }
+        if (region.remaining() < HEADER_SIZE + payloadSize) {
+            if (region.remaining() >= Integer.BYTES) {
+                region.putInt(region.position(), SKIP);
+            }
+            roll();
+        }
+        recordStart = region.position();
+        region.position(recordStart + HEADER_SIZE);
+        return region;
+    }
+
+    void end() {
+        int length = region.position() - recordStart - HEADER_SIZE;
+        region.putInt(recordStart + 4, checksum(recordStart + HEADER_SIZE, length));
+        region.putInt(recordStart, length);
+        recordStart = -1;
+    }
+
+    /**
+     * Отменяет начатую запись и обнуляет уже записанные данные: за концом журнала не должно
+     * оставаться байтов, которые при чтении можно принять за продолжение журнала.
+     */
+    void abort() {
+        if (recordStart >= 0) {
+            for (int position = recordStart; position < region.position(); position++) {
+                region.put(position, (byte) 0);
+            }
+            region.position(recordStart);
+            recordStart = -1;
+        }
+    }
+
+    /**
+     * Фиксирует записи, сделанные после прошлого вызова. Без {@code sync} ничего не делает.
+     */
+    void commit() {
+        int position = region.position();
+        if (sync && position > dirtyFrom) {
+            region.force(dirtyFrom, position - dirtyFrom);
+        }
+        dirtyFrom = position;
+    }
+
+    /**
+     * @return смещение конца журнала от начала файла
+     */
+    long position() {
+        return regionIndex * segmentSize + region.position();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (region != null) {
+                commit();
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть журнал", e);
+        }
+    }
+
+    private void roll() {
+        commit();
+        try {
+            region = map(regionIndex + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось расширить журнал", e);
+        }
+        regionIndex++;
+        dirtyFrom = 0;
+    }
+
+    private boolean nextRegionExists() throws IOException {
+        if (channel.size() < (regionIndex + 2) * segmentSize) {
+            return false;
+        }
+        region = map(++regionIndex);
+        return true;
+    }
+
+    private MappedByteBuffer map(long index) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, index * segmentSize, segmentSize);
+    }
+
+    private int checksum(int offset, int length) {
+        crc.reset();
+        crc.update(region.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Обнуляет область после конца журнала. Нулевые страницы только читаются,
+     * чтобы не занимать место на диске под ещё не записанную часть файла.
+     */
+    private void clearTail(int from) {
+        int position = from;
+        while (position < segmentSize && position % Long.BYTES != 0) {
+            region.put(position++, (byte) 0);
+        }
+        for (; position + Long.BYTES <= segmentSize; position += Long.BYTES) {
+            if (region.getLong(position) != 0) {
+                region.putLong(position, 0);
+            }
+        }
+        for (; position < segmentSize; position++) {
+            region.put(position, (byte) 0);
+        }
+    }
+}
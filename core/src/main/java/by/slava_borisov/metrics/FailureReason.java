@@ -0,0 +1,28 @@
+package by.slava_borisov.metrics;
+
+/**
+ * Причина, по которой операция не выполнена или транзакция откатилась.
+ */
+public enum FailureReason {
+
+    ACCOUNT_NOT_FOUND("счёт не найден"),
+    ACCOUNT_CLOSED("счёт закрыт"),
+    INSUFFICIENT_FUNDS("недостаточно средств"),
+    INVALID_AMOUNT("неверная сумма"),
+    LAST_ACTIVE_ACCOUNT("единственный счёт"),
+    USER_NOT_FOUND("пользователь не найден"),
+    LOGIN_TAKEN("логин занят"),
+    CONCURRENCY_CONFLICT("конфликт блокировок"),
+    ROLLBACK_ONLY("откат вложенной операции"),
+    ERROR("ошибка");
+
+    private final String title;
+
+    FailureReason(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
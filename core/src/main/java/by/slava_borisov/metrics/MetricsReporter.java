@@ -0,0 +1,137 @@
+package by.slava_borisov.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикует {@link OperationMetrics}: периодически перезаписывает отчёт в файле
+ * {@code bank.metrics.file} и регистрирует MXBean
+ * {@code by.slava_borisov:type=OperationMetrics,name="<db.pool.name>"}.
+ */
+@Component
+public class MetricsReporter implements OperationMetricsMXBean, AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(MetricsReporter.class);
+
+    private final OperationMetrics metrics;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectName objectName;
+
+    public MetricsReporter(OperationMetrics metrics,
+                           @Value("${bank.metrics.file:}") String file,
+                           @Value("${bank.metrics.dump-interval-ms:60000}") long dumpIntervalMillis,
+                           @Value("${bank.metrics.jmx.enabled:true}") boolean jmxEnabled,
+                           @Value("${db.pool.name:bank-pool}") String poolName) {
+        this.metrics = metrics;
+        this.file = file.isBlank() ? null : Path.of(file);
+        if (this.file != null && dumpIntervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::dumpQuietly, dumpIntervalMillis, dumpIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+        objectName = jmxEnabled ? register(poolName) : null;
+    }
+
+    /**
+     * Записывает отчёт в файл целиком: читатель файла не увидит его наполовину записанным.
+     */
+    public void dump() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, "Метрики на " + LocalDateTime.now() + System.lineSeparator() + metrics,
+                StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String getReport() {
+        return metrics.toString();
+    }
+
+    @Override
+    public long getCommits() {
+        return metrics.getCommits();
+    }
+
+    @Override
+    public long getRollbacks() {
+        return metrics.getRollbacks();
+    }
+
+    @Override
+    public long getCount(String operation) {
+        return metrics.getCount(Operation.valueOf(operation));
+    }
+
+    @Override
+    public long getFailures(String operation, String reason) {
+        return metrics.getFailures(Operation.valueOf(operation), FailureReason.valueOf(reason));
+    }
+
+    @Override
+    public double getLatencyMillis(String operation, double percentile) {
+        return metrics.getLatencyMillis(Operation.valueOf(operation), percentile);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            dumpQuietly();
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                log.warn("Не удалось снять регистрацию метрик в JMX", e);
+            }
+        }
+    }
+
+    private ObjectName register(String poolName) {
+        try {
+            // имя пула различает несколько контекстов приложения в одной JVM
+            ObjectName name = new ObjectName("by.slava_borisov:type=OperationMetrics,name="
+                    + ObjectName.quote(poolName));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, name);
+            return name;
+        } catch (JMException e) {
+            log.warn("Не удалось зарегистрировать метрики в JMX", e);
+            return null;
+        }
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            log.warn("Не удалось записать метрики в {}", file, e);
+        }
+    }
+}
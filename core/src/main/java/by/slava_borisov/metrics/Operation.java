@@ -0,0 +1,25 @@
+package by.slava_borisov.metrics;
+
+/**
+ * Операции банка, для которых собираются метрики.
+ */
+public enum Operation {
+
+    CREATE_USER("регистрация"),
+    CREATE_ACCOUNT("открытие счёта"),
+    CLOSE_ACCOUNT("закрытие счёта"),
+    DEPOSIT("пополнение"),
+    WITHDRAW("снятие"),
+    TRANSFER("перевод"),
+    BULK_TRANSFER("пакет переводов");
+
+    private final String title;
+
+    Operation(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,248 @@
+package by.slava_borisov.metrics;
+
+import by.slava_borisov.util.TransactionHelper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Метрики операций над счетами, транзакций и сессий Hibernate.
+ * <p>
+ * Время пишется в {@link Recorder} HdrHistogram без блокировок, так что запись в горячем пути
+ * стоит пары атомарных операций. Накопленная гистограмма пополняется интервальными
+ * только при чтении метрик.
+ */
+@Component
+public class OperationMetrics {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Map<Operation, Outcomes> operations = new EnumMap<>(Operation.class);
+    private final Outcomes transactions = new Outcomes();
+    private final Latency sessions = new Latency();
+    // учёт операций, отложенный до завершения действия в {@link #recordIfCompleted}
+    private final ThreadLocal<List<Runnable>> held = new ThreadLocal<>();
+
+    public OperationMetrics() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new Outcomes());
+        }
+    }
+
+    /**
+     * Выполняет операцию и учитывает её время и исход: результат, не прошедший проверку
+     * {@code succeeded}, — отказ, исключение — сбой.
+     */
+    public <T> T time(Operation operation, Supplier<T> action, Predicate<T> succeeded) {
+        Outcomes outcomes = operations.get(operation);
+        long started = System.nanoTime();
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            count(outcomes, outcomes.failed, outcomes.reasons.get(classify(e)), System.nanoTime() - started);
+            throw e;
+        }
+        LongAdder outcome = succeeded.test(result) ? outcomes.succeeded : outcomes.rejected;
+        count(outcomes, outcome, null, System.nanoTime() - started);
+        return result;
+    }
+
+    public void reject(Operation operation, FailureReason reason) {
+        LongAdder counter = operations.get(operation).reasons.get(reason);
+        List<Runnable> records = held.get();
+        if (records == null) {
+            counter.increment();
+        } else {
+            records.add(counter::increment);
+        }
+    }
+
+    /**
+     * Выполняет действие, откладывая учёт операций, сделанных в нём этим потоком. Учёт попадает
+     * в метрики, только если действие завершилось без исключения, — так операции откатившейся
+     * транзакции, которые затем выполнят заново, не считаются дважды.
+     */
+    public <T> T recordIfCompleted(Supplier<T> action) {
+        if (held.get() != null) {
+            return action.get();
+        }
+        List<Runnable> records = new ArrayList<>();
+        held.set(records);
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            held.remove();
+        }
+        records.forEach(Runnable::run);
+        return result;
+    }
+
+    /**
+     * @param reason причина отката или {@code null}, если транзакция зафиксирована
+     */
+    public void recordTransaction(long startedNanos, FailureReason reason) {
+        transactions.latency.record(System.nanoTime() - startedNanos);
+        if (reason == null) {
+            transactions.succeeded.increment();
+        } else {
+            transactions.failed.increment();
+            transactions.reasons.get(reason).increment();
+        }
+    }
+
+    public void recordSession(long startedNanos) {
+        sessions.record(System.nanoTime() - startedNanos);
+    }
+
+    public static FailureReason classify(Throwable e) {
+        return TransactionHelper.isConcurrencyFailure(e) ? FailureReason.CONCURRENCY_CONFLICT : FailureReason.ERROR;
+    }
+
+    public long getCount(Operation operation) {
+        Outcomes outcomes = operations.get(operation);
+        return outcomes.succeeded.sum() + outcomes.rejected.sum() + outcomes.failed.sum();
+    }
+
+    public long getSucceeded(Operation operation) {
+        return operations.get(operation).succeeded.sum();
+    }
+
+    public long getRejected(Operation operation) {
+        return operations.get(operation).rejected.sum();
+    }
+
+    public long getFailed(Operation operation) {
+        return operations.get(operation).failed.sum();
+    }
+
+    public long getFailures(Operation operation, FailureReason reason) {
+        return operations.get(operation).reasons.get(reason).sum();
+    }
+
+    /**
+     * @param percentile процентиль от 0 до 100, например 99.9
+     */
+    public double getLatencyMillis(Operation operation, double percentile) {
+        return operations.get(operation).latency.percentileMillis(percentile);
+    }
+
+    public long getCommits() {
+        return transactions.succeeded.sum();
+    }
+
+    public long getRollbacks() {
+        return transactions.failed.sum();
+    }
+
+    public long getRollbacks(FailureReason reason) {
+        return transactions.reasons.get(reason).sum();
+    }
+
+    public double getTransactionMillis(double percentile) {
+        return transactions.latency.percentileMillis(percentile);
+    }
+
+    public double getSessionMillis(double percentile) {
+        return sessions.percentileMillis(percentile);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format("%-16s %8s %8s %8s %8s %10s %10s %10s %10s%n",
+                "Операция", "всего", "успех", "отказ", "сбой", "p50 мс", "p99 мс", "p99.9 мс", "max мс"));
+        operations.forEach((operation, outcomes) -> {
+            Histogram histogram = outcomes.latency.snapshot();
+            report.append(String.format("%-16s %8d %8d %8d %8d %10.3f %10.3f %10.3f %10.3f%n",
+                    operation.getTitle(), histogram.getTotalCount(), outcomes.succeeded.sum(),
+                    outcomes.rejected.sum(), outcomes.failed.sum(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue())));
+            appendReasons(report, outcomes);
+        });
+        report.append(String.format("Транзакции: зафиксировано %d, откатано %d; p50 %.3f мс, p99 %.3f мс, "
+                        + "p99.9 %.3f мс%n", getCommits(), getRollbacks(), getTransactionMillis(50),
+                getTransactionMillis(99), getTransactionMillis(99.9)));
+        appendReasons(report, transactions);
+        report.append(String.format("Сессии: p50 %.3f мс, p99 %.3f мс, p99.9 %.3f мс%n",
+                getSessionMillis(50), getSessionMillis(99), getSessionMillis(99.9)));
+        return report.toString();
+    }
+
+    private static void appendReasons(StringBuilder report, Outcomes outcomes) {
+        outcomes.reasons.forEach((reason, count) -> {
+            long value = count.sum();
+            if (value > 0) {
+                report.append(String.format("    %s: %d%n", reason.getTitle(), value));
+            }
+        });
+    }
+
+    private void count(Outcomes outcomes, LongAdder outcome, LongAdder reason, long elapsedNanos) {
+        List<Runnable> records = held.get();
+        if (records == null) {
+            outcomes.count(outcome, reason, elapsedNanos);
+        } else {
+            records.add(() -> outcomes.count(outcome, reason, elapsedNanos));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    private static final class Outcomes {
+
+        final Latency latency = new Latency();
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final Map<FailureReason, LongAdder> reasons = new EnumMap<>(FailureReason.class);
+
+        Outcomes() {
+            for (FailureReason reason : FailureReason.values()) {
+                reasons.put(reason, new LongAdder());
+            }
+        }
+
+        void count(LongAdder outcome, LongAdder reason, long elapsedNanos) {
+            outcome.increment();
+            if (reason != null) {
+                reason.increment();
+            }
+            latency.record(elapsedNanos);
+        }
+    }
+
+    private static final class Latency {
+
+        // три значащие цифры: погрешность процентилей не больше 0,1%
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private Histogram interval;
+
+        void record(long elapsedNanos) {
+            recorder.recordValue(Math.max(0, elapsedNanos));
+        }
+
+        synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total.copy();
+        }
+
+        double percentileMillis(double percentile) {
+            return millis(snapshot().getValueAtPercentile(percentile));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package by.slava_borisov.metrics;
+
+/**
+ * Метрики операций в JMX. Операции и причины передаются по именам констант
+ * {@link Operation} и {@link FailureReason}.
+ */
+public interface OperationMetricsMXBean {
+
+    String getReport();
+
+    long getCommits();
+
+    long getRollbacks();
+
+    long getCount(String operation);
+
+    long getFailures(String operation, String reason);
+
+    double getLatencyMillis(String operation, double percentile);
+}
@@ -0,0 +1,54 @@
+package by.slava_borisov.metrics;
+
+import by.slava_borisov.config.Profiles;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сводка статистики Hibernate и счётчиков по транзакциям для вывода пользователю.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class PersistenceStatistics {
+
+    private final SessionFactory sessionFactory;
+    private final TransactionStatistics transactionStatistics;
+
+    public PersistenceStatistics(SessionFactory sessionFactory, TransactionStatistics transactionStatistics) {
+        this.sessionFactory = sessionFactory;
+        this.transactionStatistics = transactionStatistics;
+    }
+
+    public boolean isEnabled() {
+        return sessionFactory.getStatistics().isStatisticsEnabled();
+    }
+
+    @Override
+    public String toString() {
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return "Статистика Hibernate отключена, включается свойством bank.statistics.enabled=true";
+        }
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Сессий открыто %d, транзакций %d (успешных %d); подготовлено запросов %d%n",
+                statistics.getSessionOpenCount(), statistics.getTransactionCount(),
+                statistics.getSuccessfulTransactionCount(), statistics.getPrepareStatementCount()));
+        report.append(String.format("HQL-запросов %d, максимальное время %d мс: %s%n",
+                statistics.getQueryExecutionCount(), statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString()));
+        report.append(String.format("Сущностей загружено %d, выбрано %d, вставлено %d, обновлено %d, удалено %d; "
+                        + "сбросов %d%n", statistics.getEntityLoadCount(), statistics.getEntityFetchCount(),
+                statistics.getEntityInsertCount(), statistics.getEntityUpdateCount(),
+                statistics.getEntityDeleteCount(), statistics.getFlushCount()));
+        report.append(String.format("Кэш второго уровня: попаданий %d, промахов %d; кэш запросов: попаданий %d, "
+                        + "промахов %d%n", statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount()));
+        if (transactionStatistics.isEnabled()) {
+            report.append(transactionStatistics).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package by.slava_borisov.metrics;
+
+import by.slava_borisov.config.Profiles;
+import org.hibernate.SessionEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Запросы, загрузки сущностей и сбросы сессии в пересчёте на одну транзакцию
+ * {@link by.slava_borisov.util.TransactionHelper}. Собирается только в режиме статистики
+ * {@code bank.statistics.enabled}: каждой сессии тогда выдаётся свой {@link Counter}.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class TransactionStatistics {
+
+    private final boolean enabled;
+    private final ThreadLocal<Counter> current = new ThreadLocal<>();
+
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder statementNanos = new LongAdder();
+    private final LongAdder entityLoads = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final AtomicLong maxEntityLoads = new AtomicLong();
+
+    public TransactionStatistics(@Value("${bank.statistics.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Начинает учёт новой транзакции в текущем потоке.
+     *
+     * @return счётчик, который нужно передать сессии и затем в {@link #end(Counter)}
+     */
+    public Counter begin() {
+        Counter counter = new Counter(current.get());
+        current.set(counter);
+        return counter;
+    }
+
+    public void end(Counter counter) {
+        if (counter.outer != null) {
+            current.set(counter.outer);
+        } else {
+            current.remove();
+        }
+        transactions.increment();
+        statements.add(counter.statements);
+        statementNanos.add(counter.statementNanos);
+        entityLoads.add(counter.entityLoads);
+        flushes.add(counter.flushes);
+        maxStatements.accumulateAndGet(counter.statements, Math::max);
+        maxEntityLoads.accumulateAndGet(counter.entityLoads, Math::max);
+    }
+
+    /**
+     * Сущность загружена в сессии текущего потока.
+     */
+    public void entityLoaded() {
+        Counter counter = current.get();
+        if (counter != null) {
+            counter.entityLoads++;
+        }
+    }
+
+    public long getTransactionCount() {
+        return transactions.sum();
+    }
+
+    public long getStatementCount() {
+        return statements.sum();
+    }
+
+    public long getEntityLoadCount() {
+        return entityLoads.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public long getMaxStatementsPerTransaction() {
+        return maxStatements.get();
+    }
+
+    public long getMaxEntityLoadsPerTransaction() {
+        return maxEntityLoads.get();
+    }
+
+    public double getStatementMillis() {
+        return statementNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        long count = Math.max(1, getTransactionCount());
+        return String.format("Транзакций %d; запросов %d (в среднем %.1f, максимум %d на транзакцию, %.3f мс); "
+                        + "загрузок сущностей %d (в среднем %.1f, максимум %d); сбросов сессии %d",
+                getTransactionCount(), getStatementCount(), getStatementCount() / (double) count,
+                getMaxStatementsPerTransaction(), getStatementMillis(), getEntityLoadCount(),
+                getEntityLoadCount() / (double) count, getMaxEntityLoadsPerTransaction(), getFlushCount());
+    }
+
+    /**
+     * Счётчики одной сессии. Сессия используется одним потоком, поэтому поля не синхронизируются.
+     */
+    public static final class Counter implements SessionEventListener {
+
+        private final transient Counter outer;
+        private long statements;
+        private long statementNanos;
+        private long statementStarted;
+        private long entityLoads;
+        private long flushes;
+
+        private Counter(Counter outer) {
+            this.outer = outer;
+        }
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            statementStarted = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            statements++;
+            statementNanos += System.nanoTime() - statementStarted;
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            statementStarted = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            statements++;
+            statementNanos += System.nanoTime() - statementStarted;
+        }
+
+        @Override
+        public void flushEnd(int numberOfEntities, int numberOfCollections) {
+            flushes++;
+        }
+    }
+}
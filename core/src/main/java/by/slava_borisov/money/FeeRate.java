@@ -0,0 +1,68 @@
+package by.slava_borisov.money;
+
+import java.math.BigDecimal;
+
+/**
+ * Ставка комиссии — точная дробь, например {@code 0.05} = 5/100.
+ * <p>
+ * Комиссия округляется до копейки по правилу «половина вверх» от нуля: 0,5 копейки и больше
+ * дают копейку, меньше — отбрасываются. Так же округляет колонка журнала, поэтому балансы,
+ * пересчитанные в памяти, сходятся с записанными комиссиями.
+ */
+public final class FeeRate {
+
+    private final long numerator;
+    private final long denominator;
+
+    private FeeRate(long numerator, long denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * @throws IllegalArgumentException если ставка отрицательна или задана точнее 10<sup>-18</sup>
+     */
+    public static FeeRate of(BigDecimal rate) {
+        if (rate.signum() < 0) {
+            throw new IllegalArgumentException("Ставка комиссии не может быть отрицательной: " + rate);
+        }
+        BigDecimal exact = rate.stripTrailingZeros();
+        if (exact.scale() <= 0) {
+            return new FeeRate(exact.longValueExact(), 1);
+        }
+        if (exact.scale() > 18) {
+            throw new IllegalArgumentException("Слишком точная ставка комиссии: " + rate);
+        }
+        return new FeeRate(exact.unscaledValue().longValueExact(), pow10(exact.scale()));
+    }
+
+    /**
+     * @return комиссия с суммы {@code amount}, округлённая до копейки
+     */
+    public Money feeOf(Money amount) {
+        return Money.ofMinor(feeOf(amount.getMinorUnits()));
+    }
+
+    public long feeOf(long minorUnits) {
+        long magnitude = Math.addExact(Math.multiplyExact(Math.abs(minorUnits), numerator), denominator / 2)
+                / denominator;
+        return minorUnits < 0 ? -magnitude : magnitude;
+    }
+
+    public boolean isZero() {
+        return numerator == 0;
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return numerator + "/" + denominator;
+    }
+}
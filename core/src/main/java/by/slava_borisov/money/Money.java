@@ -0,0 +1,139 @@
+package by.slava_borisov.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная сумма в копейках.
+ * <p>
+ * Сумма хранится целым числом минимальных единиц, поэтому сложение, вычитание и сравнение
+ * не создают промежуточных {@link BigDecimal}. В {@code BigDecimal} со шкалой {@link #SCALE}
+ * сумма переводится только на границе с базой. Точнее копейки сумму задать нельзя:
+ * {@link #of(BigDecimal)} и {@link #parse(CharSequence)} такую сумму отклоняют, а не округляют.
+ */
+public final class Money implements Comparable<Money> {
+
+    /**
+     * Шкала денежных колонок базы.
+     */
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long UNITS_PER_MAJOR = 100;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @throws ArithmeticException если сумма точнее копейки или не помещается в {@code long}
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Разбирает сумму вида {@code 123}, {@code -4.5} или {@code 10.05} без промежуточного {@link BigDecimal}.
+     *
+     * @throws NumberFormatException если строка не сумма, сумма точнее копейки или слишком велика
+     */
+    public static Money parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        int fraction = -1;
+        try {
+            for (; i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '.' && fraction < 0) {
+                    fraction = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException("Неверная сумма: " + text);
+                }
+                if (fraction == SCALE) {
+                    // нули после копеек точность не меняют
+                    if (c != '0') {
+                        throw new NumberFormatException("Сумма точнее копейки: " + text);
+                    }
+                    continue;
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Неверная сумма: " + text);
+            }
+            for (int scale = Math.max(fraction, 0); scale < SCALE; scale++) {
+                units = Math.multiplyExact(units, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Слишком большая сумма: " + text);
+        }
+        return ofMinor(negative ? -units : units);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        long major = minorUnits / UNITS_PER_MAJOR;
+        long minor = Math.abs(minorUnits % UNITS_PER_MAJOR);
+        String sign = minorUnits < 0 && major == 0 ? "-" : "";
+        return sign + major + (minor < 10 ? ".0" : ".") + minor;
+    }
+}
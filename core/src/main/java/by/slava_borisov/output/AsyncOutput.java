@@ -0,0 +1,134 @@
+package by.slava_borisov.output;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Текстовый вывод через фоновый поток.
+ * <p>
+ * Вызывающий поток только ставит текст в очередь, а фоновый забирает всё накопленное разом
+ * и пишет одним вызовом со сбросом буфера в конце пачки. Очередь ограничена: если вывод
+ * не успевает, производитель ждёт, а не копит строки в памяти.
+ */
+public class AsyncOutput implements AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final Object END = new Object();
+
+    private final PrintStream target;
+    private final BlockingQueue<Object> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AsyncOutput(PrintStream target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    public AsyncOutput(PrintStream target, int capacity) {
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "async-output");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void print(String text) {
+        put(text);
+    }
+
+    public void println(String line) {
+        put(line + System.lineSeparator());
+    }
+
+    public void println(Object value) {
+        println(String.valueOf(value));
+    }
+
+    public void println() {
+        put(System.lineSeparator());
+    }
+
+    public void printf(String format, Object... args) {
+        put(String.format(format, args));
+    }
+
+    /**
+     * Ждёт, пока весь поставленный в очередь текст будет записан.
+     */
+    public void flush() {
+        CountDownLatch written = new CountDownLatch(1);
+        put(written);
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Дописывает очередь и останавливает фоновый поток.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        put(END);
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void put(Object item) {
+        if (closed) {
+            throw new IllegalStateException("Вывод уже закрыт");
+        }
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Вывод прерван", e);
+        }
+    }
+
+    private void drain() {
+        List<Object> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Object item : batch) {
+                    if (item instanceof String part) {
+                        text.append(part);
+                        continue;
+                    }
+                    write(text);
+                    if (item == END) {
+                        return;
+                    }
+                    ((CountDownLatch) item).countDown();
+                }
+                write(text);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            write(text);
+        }
+    }
+
+    private void write(StringBuilder text) {
+        if (!text.isEmpty()) {
+            target.print(text);
+            text.setLength(0);
+        }
+        target.flush();
+    }
+}
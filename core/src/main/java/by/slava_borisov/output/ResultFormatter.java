@@ -0,0 +1,67 @@
+package by.slava_borisov.output;
+
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+
+import java.math.BigDecimal;
+
+/**
+ * Сообщения об исходе операций для вывода пользователю.
+ */
+public final class ResultFormatter {
+
+    private ResultFormatter() {
+    }
+
+    public static String format(OperationResult result) {
+        return result.isSuccess() ? success(result) : failure(result);
+    }
+
+    /**
+     * Итог пакета переводов: число выполненных и причина отказа по каждой отклонённой инструкции.
+     */
+    public static String format(BulkTransferResult result) {
+        StringBuilder text = new StringBuilder(String.format("Выполнено переводов: %d, комиссия: %s.",
+                result.getApplied(), result.getFees()));
+        result.getRejected().forEach((index, reason) -> text.append(System.lineSeparator())
+                .append(String.format("Инструкция %d отклонена: %s.", index + 1, reason.getTitle())));
+        return text.toString();
+    }
+
+    private static String success(OperationResult result) {
+        return switch (result.getOperation()) {
+            case CREATE_USER -> String.format("Пользователь ID:%d успешно добавлен, счёт %d.",
+                    result.getUserId(), result.getAccountId());
+            case CREATE_ACCOUNT -> String.format("Счёт %d для пользователя ID:%d создан.",
+                    result.getAccountId(), result.getUserId());
+            case CLOSE_ACCOUNT -> String.format("Счёт %d закрыт, %s переведено на счёт %d.",
+                    result.getAccountId(), result.getAmount(), result.getTargetAccountId());
+            case DEPOSIT -> String.format("Сумма %s переведена на счёт %d.",
+                    result.getAmount(), result.getAccountId());
+            case WITHDRAW -> String.format("Сумма %s успешно снята со счёта %d.",
+                    result.getAmount(), result.getAccountId());
+            case TRANSFER -> String.format("Совершен перевод %s со счета отправителя: %d на счёт получателя: %d.",
+                    result.getAmount(), result.getAccountId(), result.getTargetAccountId())
+                    + (hasFee(result) ? String.format(" Комиссия составила: %s.", result.getFee()) : "");
+            case BULK_TRANSFER -> "Пакет переводов выполнен.";
+        };
+    }
+
+    private static String failure(OperationResult result) {
+        String reason = result.getFailure().getTitle();
+        return switch (result.getOperation()) {
+            case CREATE_USER -> "Ошибка. Логин уже существует.";
+            case CREATE_ACCOUNT -> String.format("Ошибка. Пользователь с ID:%d не найден.", result.getUserId());
+            case CLOSE_ACCOUNT -> String.format("Не удалось закрыть счёт %d: %s.", result.getAccountId(), reason);
+            case DEPOSIT -> String.format("Ошибка. Счёт %d не пополнен: %s.", result.getAccountId(), reason);
+            case WITHDRAW -> String.format("Ошибка при снятии наличных со счёта %d: %s.",
+                    result.getAccountId(), reason);
+            case TRANSFER -> "Ошибка. Деньги не переведены: " + reason + ".";
+            case BULK_TRANSFER -> "Ошибка. Пакет переводов не выполнен: " + reason + ".";
+        };
+    }
+
+    private static boolean hasFee(OperationResult result) {
+        return result.getFee() != null && result.getFee().compareTo(BigDecimal.ZERO) > 0;
+    }
+}
@@ -1,18 +1,26 @@
 package by.slava_borisov.service;
 
+import by.slava_borisov.dao.TransferFailurePolicy;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 
 public interface AccountService {
 
-    void createAccount(Long userId);
+    OperationResult createAccount(Long userId);
+
+    OperationResult closeAccount(Long accountId);
 
-    void closeAccount(Long accountId);
+    OperationResult accountDeposit(Long accountId, BigDecimal amount);
 
-    void accountDeposit(Long accountId, BigDecimal amount);
+    OperationResult accountTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount);
 
-    void accountTransfer(Long senderAccountId, Long recipientAccountId, BigDecimal amount);
+    OperationResult accountWithDraw(Long accountId, BigDecimal amount);
 
-    void accountWithDraw(Long accountId, BigDecimal amount);
+    BulkTransferResult accountBulkTransfer(List<TransferInstruction> transfers, TransferFailurePolicy policy);
 
 }
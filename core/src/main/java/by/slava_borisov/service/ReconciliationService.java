@@ -0,0 +1,19 @@
+package by.slava_borisov.service;
+
+import by.slava_borisov.dto.ReconciliationMismatch;
+import by.slava_borisov.dto.ReconciliationReport;
+
+public interface ReconciliationService {
+
+    /**
+     * Сверяет один счёт с журналом.
+     *
+     * @return расхождение или {@code null}, если баланс сходится
+     */
+    ReconciliationMismatch verifyAccount(Long accountId);
+
+    /**
+     * Сверяет все счета банка и обновляет снимки сошедшихся счетов.
+     */
+    ReconciliationReport reconcileAll();
+}
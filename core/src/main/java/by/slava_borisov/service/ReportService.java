@@ -0,0 +1,28 @@
+package by.slava_borisov.service;
+
+import by.slava_borisov.dto.DailyTotal;
+import by.slava_borisov.dto.ReportFilter;
+import by.slava_borisov.dto.TypeTotal;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ReportService {
+
+    /**
+     * Итоги по счетам за каждый день периода с разбивкой по типу операции.
+     */
+    List<DailyTotal> getDailyTotals(ReportFilter filter);
+
+    /**
+     * Итоги за период по типу операции.
+     */
+    List<TypeTotal> getTypeTotals(ReportFilter filter);
+
+    /**
+     * Сворачивает в дневные итоги все завершённые дни журнала.
+     *
+     * @return последний свёрнутый день или {@code null}, если свёртка отключена
+     */
+    LocalDate rollUp();
+}
@@ -1,6 +1,24 @@
 package by.slava_borisov.service;
 
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.StatementLine;
+import by.slava_borisov.dto.StatementSummary;
+import by.slava_borisov.dto.TransactionFilter;
+import by.slava_borisov.dto.TransactionView;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
 public interface TransactionService {
 
-    void showAllTransaction();
-}
\ No newline at end of file
+    /**
+     * Страница журнала после записи {@code afterId}.
+     */
+    Page<TransactionView> getTransactions(TransactionFilter filter, Long afterId);
+
+    /**
+     * Передаёт строки выписки по счёту за период в хронологическом порядке с текущим балансом.
+     * Незаданная граница периода не ограничивает его.
+     */
+    StatementSummary accountStatement(Long accountId, LocalDate from, LocalDate to, Consumer<StatementLine> sink);
+}
@@ -1,9 +1,16 @@
 package by.slava_borisov.service;
 
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.UserView;
+
 public interface UserService {
 
-    public void createUser(String login);
+    public OperationResult createUser(String login);
 
-    public void showAllUsers();
+    /**
+     * Страница пользователей со счетами после пользователя {@code afterId}.
+     */
+    public Page<UserView> getUsers(Long afterId);
 
 }
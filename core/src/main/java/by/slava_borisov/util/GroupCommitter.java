@@ -0,0 +1,261 @@
+package by.slava_borisov.util;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.hibernate.entity.Account;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Групповая фиксация: операции из разных потоков собираются в пакет и выполняются
+ * одним потоком в общей транзакции.
+ * <p>
+ * Изменение баланса и его записи в журнале остаются в одной транзакции, а вызывающий
+ * поток получает результат только после фиксации пакета. Вставки журнала всего пакета
+ * уходят в базу пакетами JDBC, а стоимость фиксации делится между операциями.
+ * Пакет закрывается по {@code bank.ledger.group-commit.max-batch-size} операций или
+ * через {@code max-linger-ms} после первой. Если пакет откатился, его операции
+ * выполняются заново по одной, и ошибка достаётся только своей операции.
+ * <p>
+ * Операции пакета идут в порядке очереди, и каждая блокировала бы свои счета сама — не по
+ * возрастанию ID в пределах общей транзакции. Поэтому до выполнения пакета все счета его
+ * операций блокируются одним проходом по возрастанию ID, как в пакете переводов, и встречный
+ * перевод или закрытие счёта не приводят к взаимной блокировке с пакетом.
+ */
+@Profile(Profiles.DATABASE)
+@Component
+public class GroupCommitter implements AutoCloseable {
+
+    private static final Unit<Object> STOP = new Unit<>(List.of(), null);
+    private static final int LOCK_CHUNK_SIZE = 1000;
+
+    private final TransactionHelper transactionHelper;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final int maxAttempts;
+
+    private final BlockingQueue<Unit<?>> queue = new LinkedBlockingQueue<>();
+    private final Object submitLock = new Object();
+    private final Thread committer;
+    private boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong units = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public GroupCommitter(TransactionHelper transactionHelper,
+                          @Value("${bank.ledger.group-commit.enabled:false}") boolean enabled,
+                          @Value("${bank.ledger.group-commit.max-batch-size:64}") int maxBatchSize,
+                          @Value("${bank.ledger.group-commit.max-linger-ms:2}") long maxLingerMillis,
+                          @Value("${bank.concurrency.max-attempts:5}") int maxAttempts) {
+        this.transactionHelper = transactionHelper;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.maxAttempts = maxAttempts;
+        if (enabled) {
+            committer = new Thread(this::run, "ledger-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        } else {
+            committer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Выполняет действие в ближайшем пакете и ждёт его фиксации.
+     *
+     * @param accountIds счета, которые блокирует действие; пакет блокирует их заранее по возрастанию ID
+     */
+    public <T> T execute(Collection<Long> accountIds, Function<Session, T> action) {
+        try {
+            return submit(accountIds, action).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Function<Session, T> action) {
+        return submit(List.of(), action);
+    }
+
+    public <T> CompletableFuture<T> submit(Collection<Long> accountIds, Function<Session, T> action) {
+        if (!enabled) {
+            throw new IllegalStateException("Групповая фиксация выключена");
+        }
+        Unit<T> unit = new Unit<>(accountIds, action);
+        synchronized (submitLock) {
+            if (closed) {
+                throw new IllegalStateException("Групповая фиксация остановлена");
+            }
+            queue.add(unit);
+        }
+        return unit.result;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getUnitCount() {
+        return units.get();
+    }
+
+    /**
+     * Пакеты, которые откатились и были выполнены заново по одной операции.
+     */
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        synchronized (submitLock) {
+            closed = true;
+            queue.add(STOP);
+        }
+        committer.join();
+    }
+
+    private void run() {
+        List<Unit<?>> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Unit<?> first = queue.take();
+                if (first == STOP) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    Unit<?> next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            commit(batch);
+            batch.clear();
+        }
+        // после STOP новых операций не бывает, но уже принятые должны завершиться
+        for (Unit<?> unit = queue.poll(); unit != null; unit = queue.poll()) {
+            if (unit != STOP) {
+                runAlone(unit);
+            }
+        }
+    }
+
+    private void commit(List<Unit<?>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        units.addAndGet(batch.size());
+        if (batch.size() == 1) {
+            batches.incrementAndGet();
+            runAlone(batch.get(0));
+            return;
+        }
+        List<Object> results;
+        try {
+            results = transactionHelper.executeInTransaction(session -> {
+                lockAccounts(session, batch);
+                List<Object> values = new ArrayList<>(batch.size());
+                for (Unit<?> unit : batch) {
+                    values.add(unit.action.apply(session));
+                }
+                return values;
+            });
+        } catch (RuntimeException e) {
+            fallbacks.incrementAndGet();
+            batch.forEach(this::runAlone);
+            return;
+        }
+        batches.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results.get(i));
+        }
+    }
+
+    private <T> void runAlone(Unit<T> unit) {
+        try {
+            unit.result.complete(transactionHelper.executeWithRetry(maxAttempts, unit.action));
+        } catch (RuntimeException e) {
+            unit.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Блокирует счета всех операций пакета частями по возрастанию ID.
+     */
+    private static void lockAccounts(Session session, List<Unit<?>> batch) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (Unit<?> unit : batch) {
+            for (Long id : unit.accountIds) {
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+        List<Long> part = new ArrayList<>(Math.min(ids.size(), LOCK_CHUNK_SIZE));
+        for (Long id : ids) {
+            part.add(id);
+            if (part.size() == LOCK_CHUNK_SIZE || id.equals(ids.last())) {
+                session.createQuery("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id", Account.class)
+                        .setParameter("ids", part)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .getResultList();
+                part.clear();
+            }
+        }
+    }
+
+    private static final class Unit<T> {
+
+        final Collection<Long> accountIds;
+        final Function<Session, T> action;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Unit(Collection<Long> accountIds, Function<Session, T> action) {
+            this.accountIds = accountIds;
+            this.action = action;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object value) {
+            result.complete((T) value);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package by.slava_borisov.util;
+
+/**
+ * Как вызов {@link TransactionHelper#executeInTransaction} относится к уже открытой в потоке транзакции.
+ */
+public enum Propagation {
+
+    /**
+     * Присоединиться к текущей сессии и транзакции, если они есть, иначе открыть новые.
+     */
+    REQUIRED,
+
+    /**
+     * Всегда открывать отдельную сессию и транзакцию, приостанавливая текущую на время вызова.
+     */
+    REQUIRES_NEW
+}
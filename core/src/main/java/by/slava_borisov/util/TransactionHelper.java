@@ -1,55 +1,218 @@
 package by.slava_borisov.util;
 
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.metrics.TransactionStatistics;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
 import org.hibernate.Transaction;
+import org.hibernate.exception.LockAcquisitionException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+/**
+ * Выполняет действия в транзакции Hibernate.
+ * <p>
+ * Открытая сессия привязывается к текущему потоку, поэтому вложенные вызовы DAO
+ * по умолчанию ({@link Propagation#REQUIRED}) работают в той же сессии и транзакции,
+ * а фиксирует её только самый внешний вызов.
+ */
+@Profile(Profiles.DATABASE)
 @Component
 public class TransactionHelper {
 
+    private static final Logger log = LogManager.getLogger(TransactionHelper.class);
+
     private final SessionFactory sessionFactory;
+    private final OperationMetrics metrics;
+    private final TransactionStatistics statistics;
+    private final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> afterCommit = new ThreadLocal<>();
 
-    public TransactionHelper(SessionFactory sessionFactory) {
+    public TransactionHelper(SessionFactory sessionFactory, OperationMetrics metrics,
+                             TransactionStatistics statistics) {
         this.sessionFactory = sessionFactory;
+        this.metrics = metrics;
+        this.statistics = statistics;
     }
 
     public void executeInTransaction(Consumer<Session> action) {
-        Transaction transaction = null;
-        try (Session session = sessionFactory.openSession()) {
-            transaction = session.beginTransaction();
+        executeInTransaction(Propagation.REQUIRED, action);
+    }
+
+    public <T> T executeInTransaction(Function<Session, T> action) {
+        return executeInTransaction(Propagation.REQUIRED, action);
+    }
 
+    public void executeInTransaction(Propagation propagation, Consumer<Session> action) {
+        executeInTransaction(propagation, session -> {
             action.accept(session);
+            return null;
+        });
+    }
 
-            session.getTransaction().commit();
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+    public <T> T executeInTransaction(Propagation propagation, Function<Session, T> action) {
+        Session current = currentSession.get();
+        if (current != null && propagation == Propagation.REQUIRED) {
+            return joinTransaction(current, action);
+        }
+        try {
+            return executeInNewTransaction(action);
+        } finally {
+            if (current != null) {
+                currentSession.set(current);
+            } else {
+                currentSession.remove();
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие в транзакции и повторяет его целиком, если транзакция
+     * откатилась из-за конфликта версий или блокировок.
+     * <p>
+     * Повтор возможен только для самого внешнего вызова: внутри уже открытой транзакции
+     * действие выполняется один раз, а решение о повторе принимает внешний код.
+     */
+    public <T> T executeWithRetry(int maxAttempts, Function<Session, T> action) {
+        if (isTransactionActive()) {
+            return executeInTransaction(action);
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeInTransaction(action);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isConcurrencyFailure(e)) {
+                    throw e;
+                }
+                backOff(attempt);
             }
-            System.err.println("Transaction rollback:" + e.getMessage());
-            throw e;
         }
     }
 
-    public<T> T executeInTransaction(Function<Session, T> action) {
-        Transaction transaction = null;
-        try (Session session = sessionFactory.openSession()) {
-            transaction = session.beginTransaction();
+    /**
+     * @return {@code true}, если в текущем потоке уже открыта транзакция
+     */
+    public boolean isTransactionActive() {
+        return currentSession.get() != null;
+    }
 
-            var result = action.apply(session);
+    /**
+     * Выполняет действие после фиксации текущей транзакции; при откате оно отбрасывается.
+     * Вне транзакции действие выполняется сразу.
+     */
+    public void afterCommit(Runnable callback) {
+        List<Runnable> callbacks = afterCommit.get();
+        if (callbacks == null) {
+            callback.run();
+        } else {
+            callbacks.add(callback);
+        }
+    }
 
-            session.getTransaction().commit();
-            return result;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+    public static boolean isConcurrencyFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof LockTimeoutException
+                    || cause instanceof StaleStateException
+                    || cause instanceof LockAcquisitionException
+                    || cause instanceof org.hibernate.PessimisticLockException) {
+                return true;
             }
-            System.err.println("Transaction rollback:" + e.getMessage());
+        }
+        return false;
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Повтор транзакции прерван", e);
+        }
+    }
+
+    private <T> T joinTransaction(Session session, Function<Session, T> action) {
+        try {
+            return action.apply(session);
+        } catch (RuntimeException e) {
+            session.getTransaction().markRollbackOnly();
             throw e;
         }
     }
 
+    private <T> T executeInNewTransaction(Function<Session, T> action) {
+        List<Runnable> outerCallbacks = afterCommit.get();
+        List<Runnable> callbacks = new ArrayList<>();
+        afterCommit.set(callbacks);
+        T result;
+        long sessionStarted = System.nanoTime();
+        TransactionStatistics.Counter counter = statistics.isEnabled() ? statistics.begin() : null;
+        try (Session session = counter != null
+                ? sessionFactory.withOptions().eventListeners(counter).openSession()
+                : sessionFactory.openSession()) {
+            currentSession.set(session);
+            long started = System.nanoTime();
+            Transaction transaction = session.beginTransaction();
+            FailureReason rollback = null;
+            try {
+                result = action.apply(session);
+
+                if (transaction.getRollbackOnly()) {
+                    rollback = FailureReason.ROLLBACK_ONLY;
+                    throw new IllegalStateException("Вложенная операция завершилась ошибкой, транзакция отменена");
+                }
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (rollback == null) {
+                    rollback = OperationMetrics.classify(e);
+                }
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                // откат уже учтён в метриках по причине; построчный вывод нужен только при отладке
+                log.debug("Транзакция откачена: {}", e.getMessage());
+                throw e;
+            } finally {
+                metrics.recordTransaction(started, rollback);
+            }
+        } finally {
+            metrics.recordSession(sessionStarted);
+            if (counter != null) {
+                statistics.end(counter);
+            }
+            if (outerCallbacks != null) {
+                afterCommit.set(outerCallbacks);
+            } else {
+                afterCommit.remove();
+            }
+        }
+        runAfterCommit(callbacks);
+        return result;
+    }
+
+    private static void runAfterCommit(List<Runnable> callbacks) {
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                // транзакция уже зафиксирована, сбой обработчика не должен выглядеть как её откат
+                log.error("Ошибка после фиксации транзакции", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,37 @@
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE accounts_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users
+(
+    id        BIGINT       NOT NULL,
+    login     VARCHAR(255) NOT NULL,
+    create_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_login UNIQUE (login)
+);
+
+CREATE TABLE accounts
+(
+    id         BIGINT           NOT NULL,
+    balance    NUMERIC(19, 2)   NOT NULL,
+    is_closed  BOOLEAN          NOT NULL,
+    created_at TIMESTAMP(6)     NOT NULL,
+    user_id    BIGINT,
+    version    BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT pk_accounts PRIMARY KEY (id),
+    CONSTRAINT fk_accounts_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE transactions
+(
+    id               BIGINT         NOT NULL,
+    amount           NUMERIC(38, 2) NOT NULL,
+    transaction_type VARCHAR(255)   NOT NULL,
+    created_at       TIMESTAMP(6)   NOT NULL,
+    from_account_id  BIGINT,
+    to_account_id    BIGINT,
+    CONSTRAINT pk_transactions PRIMARY KEY (id),
+    CONSTRAINT fk_transactions_from_account FOREIGN KEY (from_account_id) REFERENCES accounts (id),
+    CONSTRAINT fk_transactions_to_account FOREIGN KEY (to_account_id) REFERENCES accounts (id)
+);
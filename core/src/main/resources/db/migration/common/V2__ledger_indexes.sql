@@ -0,0 +1,7 @@
+-- история и выписки по счёту: отбор по стороне перевода и периоду
+CREATE INDEX IF NOT EXISTS idx_transactions_from_account_created ON transactions (from_account_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_to_account_created ON transactions (to_account_id, created_at);
+
+-- отбор по периоду и типу для журнала и отчётов
+CREATE INDEX IF NOT EXISTS idx_transactions_created_at ON transactions (created_at);
+CREATE INDEX IF NOT EXISTS idx_transactions_type_created ON transactions (transaction_type, created_at);
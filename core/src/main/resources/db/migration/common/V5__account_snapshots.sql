@@ -0,0 +1,10 @@
+-- снимок журнала по счёту: сумма движений по записи last_transaction_id включительно
+CREATE TABLE account_snapshots
+(
+    account_id          BIGINT         NOT NULL,
+    balance             NUMERIC(19, 2) NOT NULL,
+    last_transaction_id BIGINT         NOT NULL,
+    taken_at            TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT pk_account_snapshots PRIMARY KEY (account_id),
+    CONSTRAINT fk_account_snapshots_account FOREIGN KEY (account_id) REFERENCES accounts (id)
+);
@@ -0,0 +1,26 @@
+-- дневные итоги журнала по счёту и типу операции: расход — записи, где счёт отправитель,
+-- приход — где получатель
+CREATE TABLE daily_account_totals
+(
+    account_id       BIGINT         NOT NULL,
+    ledger_date      DATE           NOT NULL,
+    transaction_type VARCHAR(255)   NOT NULL,
+    outgoing_count   BIGINT         NOT NULL,
+    outgoing_amount  NUMERIC(38, 2) NOT NULL,
+    incoming_count   BIGINT         NOT NULL,
+    incoming_amount  NUMERIC(38, 2) NOT NULL,
+    CONSTRAINT pk_daily_account_totals PRIMARY KEY (account_id, ledger_date, transaction_type),
+    CONSTRAINT fk_daily_account_totals_account FOREIGN KEY (account_id) REFERENCES accounts (id)
+);
+
+CREATE INDEX idx_daily_account_totals_date ON daily_account_totals (ledger_date, transaction_type);
+
+-- последний день, свёрнутый в daily_account_totals; строка одна
+CREATE TABLE ledger_rollups
+(
+    id                INT  NOT NULL,
+    rolled_up_through DATE,
+    CONSTRAINT pk_ledger_rollups PRIMARY KEY (id)
+);
+
+INSERT INTO ledger_rollups (id, rolled_up_through) VALUES (1, NULL);
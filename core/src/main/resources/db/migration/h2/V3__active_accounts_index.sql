@@ -0,0 +1,2 @@
+-- H2 не поддерживает частичные индексы, поэтому признак закрытия входит в ключ
+CREATE INDEX IF NOT EXISTS idx_accounts_user_active ON accounts (user_id, is_closed);
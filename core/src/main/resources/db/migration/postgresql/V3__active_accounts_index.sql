@@ -0,0 +1,3 @@
+-- closeAccount ищет открытые счета владельца; закрытые счета в индекс не попадают
+CREATE INDEX IF NOT EXISTS idx_accounts_user_active ON accounts (user_id) WHERE is_closed = false;
+CREATE INDEX IF NOT EXISTS idx_accounts_user ON accounts (user_id);
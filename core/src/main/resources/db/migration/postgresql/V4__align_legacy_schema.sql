@@ -0,0 +1,14 @@
+-- Базы, созданные через hibernate.hbm2ddl.auto=update, принимаются как версия 1 (baseline).
+-- В них может не быть столбца версии и последовательностей, а идентификаторы уже заняты.
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT;
+UPDATE accounts SET version = 0 WHERE version IS NULL;
+ALTER TABLE accounts ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE accounts ALTER COLUMN version SET NOT NULL;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS accounts_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS transactions_seq INCREMENT BY 50;
+
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 1, false);
+SELECT setval('accounts_seq', COALESCE((SELECT MAX(id) FROM accounts), 0) + 1, false);
+SELECT setval('transactions_seq', COALESCE((SELECT MAX(id) FROM transactions), 0) + 1, false);
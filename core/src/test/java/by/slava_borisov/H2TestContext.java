@@ -0,0 +1,41 @@
+package by.slava_borisov;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Поднимает контекст приложения поверх отдельной in-memory базы H2.
+ */
+public final class H2TestContext {
+
+    private H2TestContext() {
+    }
+
+    public static AnnotationConfigApplicationContext create(String databaseName) {
+        return create(databaseName, Map.of());
+    }
+
+    public static AnnotationConfigApplicationContext create(String databaseName, Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("db.driver", "org.h2.Driver");
+        properties.put("db.url", "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1");
+        properties.put("db.username", "sa");
+        properties.put("db.password", "");
+        properties.put("db.pool.name", databaseName);
+        properties.put("db.pool.register-mbeans", "false");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        properties.put("hibernate.hbm2ddl.auto", "validate");
+        properties.put("hibernate.generate_statistics", "true");
+        properties.putAll(overrides);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("h2-test", properties));
+        context.scan("by.slava_borisov");
+        context.refresh();
+        return context;
+    }
+}
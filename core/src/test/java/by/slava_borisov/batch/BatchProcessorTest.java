@@ -0,0 +1,181 @@
+package by.slava_borisov.batch;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchProcessorTest {
+
+    private AnnotationConfigApplicationContext context;
+    private BatchProcessor batchProcessor;
+    private TransactionHelper transactionHelper;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        context = H2TestContext.create("batch_processor_test", Map.of(
+                "bank.batch.chunk-size", "3",
+                "bank.batch.parallel", "false"));
+        batchProcessor = context.getBean(BatchProcessor.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionHelper.executeInTransaction(session -> {
+            session.createMutationQuery("DELETE FROM Transaction").executeUpdate();
+            session.createMutationQuery("DELETE FROM Account").executeUpdate();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+        });
+        context.close();
+    }
+
+    @Test
+    void testLinesRunInChunksAndRejectsAreWritten() throws IOException {
+        Path rejects = tempDir.resolve("ops.rej");
+        BatchReport users = batchProcessor.run(write("user batch_first\nuser batch_second\n"), rejects, r -> {
+        });
+        assertEquals(2, users.getSucceeded());
+        List<Long> accounts = accountIds();
+        Long first = accounts.get(0);
+        Long second = accounts.get(1);
+
+        List<BatchLineResult> results = new ArrayList<>();
+        BatchReport report = batchProcessor.run(write("""
+                # переводы между владельцами
+                deposit %1$d 100.00
+                transfer %1$d %2$d 30.00
+
+                withdraw %2$d 500.00
+                transfer %1$d
+                user batch_first
+                """.formatted(first, second)), rejects, results::add);
+
+        assertEquals(5, report.getLines());
+        assertEquals(2, report.getSucceeded());
+        assertEquals(3, report.getRejected());
+        assertEquals(2, report.getChunks());
+        assertEquals(0, report.getReplayedChunks());
+        assertEquals(rejects, report.getRejectFile());
+        assertEquals(List.of(2L, 3L, 5L, 6L, 7L), results.stream().map(BatchLineResult::getLineNumber).toList());
+        assertEquals(List.of(true, true, false, false, false),
+                results.stream().map(BatchLineResult::isSuccess).toList());
+
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals(6, rejected.size());
+        assertTrue(rejected.get(2).startsWith("# строка 6: Ожидается: transfer"));
+        assertEquals("transfer " + first, rejected.get(3));
+        assertEquals(0, new BigDecimal("68.50").compareTo(balance(first)));
+        assertEquals(0, new BigDecimal("30.00").compareTo(balance(second)));
+    }
+
+    @Test
+    void testFailedChunkIsReplayedLineByLine() throws IOException {
+        batchProcessor.run(write("user replay_owner\n"), tempDir.resolve("ops.rej"), r -> {
+        });
+        Long account = accountIds().get(0);
+        batchProcessor.run(write("deposit %d 92000000000000000.00\n".formatted(account)),
+                tempDir.resolve("ops.rej"), r -> {
+        });
+
+        OperationMetrics metrics = context.getBean(OperationMetrics.class);
+        long deposits = metrics.getCount(Operation.DEPOSIT);
+        long succeeded = metrics.getSucceeded(Operation.DEPOSIT);
+
+        // вторая строка выводит баланс за пределы NUMERIC(19, 2), и порция откатывается целиком
+        BatchReport report = batchProcessor.run(write("""
+                deposit %1$d 10.00
+                deposit %1$d 8000000000000000.00
+                deposit %1$d 5.00
+                """.formatted(account)), tempDir.resolve("ops.rej"), r -> {
+        });
+
+        assertEquals(2, report.getSucceeded());
+        assertEquals(1, report.getRejected());
+        assertEquals(1, report.getReplayedChunks());
+        // откатившаяся попытка порции в метрики не попадает, учитывается только повторное выполнение
+        assertEquals(deposits + 3, metrics.getCount(Operation.DEPOSIT));
+        assertEquals(succeeded + 2, metrics.getSucceeded(Operation.DEPOSIT));
+        assertEquals(0, new BigDecimal("92000000000000015.00").compareTo(balance(account)));
+        assertEquals(2, Files.readAllLines(report.getRejectFile()).size());
+    }
+
+    @Test
+    void testParallelModeKeepsPerAccountOrder() throws IOException {
+        try (AnnotationConfigApplicationContext parallel = H2TestContext.create("batch_parallel_test", Map.of(
+                "bank.batch.chunk-size", "16",
+                "bank.batch.parallel", "true"))) {
+            AccountDao accountDao = parallel.getBean(AccountDao.class);
+            OperationResult owner = parallel.getBean(UserDao.class).addUser("parallel_owner");
+            Long first = owner.getAccountId();
+            Long second = accountDao.createAccount(owner.getUserId()).getAccountId();
+            BigDecimal firstBefore = accountDao.getAccountById(first).getBalance();
+            BigDecimal secondBefore = accountDao.getAccountById(second).getBalance();
+
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                content.append("deposit ").append(first).append(" 1.00\n");
+            }
+            for (int i = 0; i < 10; i++) {
+                content.append("transfer ").append(first).append(' ').append(second).append(" 2.00\n");
+            }
+            content.append("withdraw ").append(second).append(" 1000000.00\n");
+            content.append("account ").append(owner.getUserId()).append('\n');
+            content.append("deposit ").append(second).append(" 3.00\n");
+            List<BatchLineResult> results = new ArrayList<>();
+
+            BatchReport report = parallel.getBean(BatchProcessor.class)
+                    .run(write(content.toString()), tempDir.resolve("parallel.rej"), results::add);
+
+            assertEquals(32, report.getSucceeded());
+            assertEquals(1, report.getRejected());
+            assertEquals(0, report.getReplayedChunks());
+            assertEquals(LongStream.rangeClosed(1, 33).boxed().toList(),
+                    results.stream().map(BatchLineResult::getLineNumber).toList());
+            assertFalse(results.get(30).isSuccess());
+            assertEquals(0, firstBefore.compareTo(accountDao.getAccountById(first).getBalance()));
+            assertEquals(0, secondBefore.add(new BigDecimal("23.00"))
+                    .compareTo(accountDao.getAccountById(second).getBalance()));
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(Files.createTempFile(tempDir, "ops", ".txt"), content);
+    }
+
+    private List<Long> accountIds() {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a ORDER BY a.id", Long.class).getResultList();
+        });
+    }
+
+    private BigDecimal balance(Long accountId) {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.balance FROM Account a WHERE a.id = :id", BigDecimal.class)
+                    .setParameter("id", accountId)
+                    .uniqueResult();
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package by.slava_borisov.cache;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.hibernate.entity.Account;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountCacheTest {
+
+    @Test
+    void testReadsAreServedFromCacheUntilMutationCommits() {
+        try (AnnotationConfigApplicationContext context = H2TestContext.create("account_cache_test")) {
+            AccountDao accountDao = context.getBean(AccountDao.class);
+            AccountCache accountCache = context.getBean(AccountCache.class);
+            Statistics statistics = context.getBean(SessionFactory.class).getStatistics();
+            Long accountId = context.getBean(UserDao.class).addUser("cache_owner").getAccountId();
+
+            long loadsBefore = statistics.getEntityLoadCount();
+            Account first = accountDao.getAccountById(accountId);
+            first.setBalance(new BigDecimal("999.00"));
+            Account second = accountDao.getAccountById(accountId);
+
+            assertEquals(1, accountCache.getHitCount());
+            assertEquals(1, accountCache.getMissCount());
+            assertEquals(0, BigDecimal.ZERO.compareTo(second.getBalance()), "кэш отдаёт копии");
+            assertEquals("cache_owner", second.getUser().getLogin());
+            long loadsAfterReads = statistics.getEntityLoadCount();
+
+            assertTrue(accountDao.deposit(accountId, new BigDecimal("25.00")).isSuccess());
+
+            assertEquals(0, new BigDecimal("25.00").compareTo(accountDao.getAccountById(accountId).getBalance()));
+            assertEquals(2, accountCache.getMissCount());
+            assertTrue(loadsAfterReads - loadsBefore <= 2, "повторное чтение не должно идти в базу");
+        }
+    }
+
+    @Test
+    void testDisabledCacheAlwaysReadsDatabase() {
+        try (AnnotationConfigApplicationContext context = H2TestContext.create("account_cache_disabled_test",
+                Map.of("bank.cache.accounts.enabled", "false"))) {
+            AccountDao accountDao = context.getBean(AccountDao.class);
+            AccountCache accountCache = context.getBean(AccountCache.class);
+            Statistics statistics = context.getBean(SessionFactory.class).getStatistics();
+            Long accountId = context.getBean(UserDao.class).addUser("uncached_owner").getAccountId();
+
+            long sessionsBefore = statistics.getSessionOpenCount();
+            accountDao.getAccountById(accountId);
+            accountDao.getAccountById(accountId);
+
+            assertFalse(accountCache.isEnabled());
+            assertEquals(2, statistics.getSessionOpenCount() - sessionsBefore);
+            assertEquals(0, accountCache.getHitCount());
+        }
+    }
+}
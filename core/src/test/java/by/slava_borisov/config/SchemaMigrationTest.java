@@ -0,0 +1,61 @@
+package by.slava_borisov.config;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.util.TransactionHelper;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SchemaMigrationTest {
+
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("schema_migration_test");
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testMigrationsAreApplied() {
+        MigrationInfo[] applied = context.getBean(Flyway.class).info().applied();
+
+        List<String> versions = Arrays.stream(applied)
+                .map(info -> info.getVersion().getVersion())
+                .toList();
+        assertTrue(versions.containsAll(List.of("1", "2", "3")));
+        assertEquals(0, context.getBean(Flyway.class).info().pending().length);
+    }
+
+    @Test
+    void testLedgerIndexesExist() {
+        List<String> indexes = context.getBean(TransactionHelper.class).executeInTransaction(session -> {
+            return session.createNativeQuery(
+                            "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES", String.class)
+                    .getResultList();
+        });
+
+        assertTrue(indexes.containsAll(List.of(
+                "idx_transactions_from_account_created",
+                "idx_transactions_to_account_created",
+                "idx_transactions_created_at",
+                "idx_transactions_type_created",
+                "idx_accounts_user_active")));
+    }
+}
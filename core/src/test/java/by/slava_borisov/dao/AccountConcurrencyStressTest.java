@@ -0,0 +1,115 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountConcurrencyStressTest {
+
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final int ACCOUNTS_PER_USER = 5;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testConcurrentTransfersConserveMoney(ConcurrencyMode mode) throws Exception {
+        String databaseName = "stress_" + mode.name().toLowerCase();
+        try (AnnotationConfigApplicationContext context = H2TestContext.create(databaseName, Map.of(
+                "db.url", "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "db.pool.maximum-size", String.valueOf(THREADS),
+                "bank.concurrency.mode", mode.name(),
+                "bank.concurrency.max-attempts", "20"))) {
+
+            AccountDao accountDao = context.getBean(AccountDao.class);
+            UserDao userDao = context.getBean(UserDao.class);
+            TransactionHelper transactionHelper = context.getBean(TransactionHelper.class);
+
+            List<Long> accountIds = new ArrayList<>();
+            for (String login : List.of("stress_first", "stress_second")) {
+                userDao.addUser(login);
+                Long userId = userDao.getUserByLogin(login).getId();
+                for (int i = 1; i < ACCOUNTS_PER_USER; i++) {
+                    accountDao.createAccount(userId);
+                }
+            }
+            accountIds.addAll(transactionHelper.executeInTransaction(session -> {
+                return session.createQuery("SELECT a.id FROM Account a ORDER BY a.id", Long.class)
+                        .getResultList();
+            }));
+            for (Long accountId : accountIds) {
+                assertTrue(accountDao.deposit(accountId, INITIAL_BALANCE).isSuccess());
+            }
+            BigDecimal totalBefore = totalBalance(transactionHelper);
+
+            AtomicInteger succeeded = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        Long from = accountIds.get(random.nextInt(accountIds.size()));
+                        Long to = accountIds.get(random.nextInt(accountIds.size()));
+                        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(100));
+                        if (accountDao.transfer(from, to, amount).isSuccess()) {
+                            succeeded.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            BigDecimal fees = transactionHelper.executeInTransaction(session -> {
+                return session.createQuery(
+                                "SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.type = :type",
+                                BigDecimal.class)
+                        .setParameter("type", TransactionType.FEE)
+                        .uniqueResult();
+            });
+            Long transferRows = transactionHelper.executeInTransaction(session -> {
+                return session.createQuery("SELECT COUNT(t) FROM Transaction t WHERE t.type = :type", Long.class)
+                        .setParameter("type", TransactionType.TRANSFER)
+                        .uniqueResult();
+            });
+            Long negativeAccounts = transactionHelper.executeInTransaction(session -> {
+                return session.createQuery("SELECT COUNT(a) FROM Account a WHERE a.balance < 0", Long.class)
+                        .uniqueResult();
+            });
+
+            assertTrue(succeeded.get() > 0);
+            assertEquals(succeeded.get(), transferRows.intValue());
+            assertEquals(0, negativeAccounts);
+            assertEquals(0, totalBefore.compareTo(totalBalance(transactionHelper).add(fees)),
+                    "Сумма балансов и комиссий должна совпадать с исходной");
+        }
+    }
+
+    private BigDecimal totalBalance(TransactionHelper transactionHelper) {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT SUM(a.balance) FROM Account a", BigDecimal.class)
+                    .uniqueResult();
+        });
+    }
+}
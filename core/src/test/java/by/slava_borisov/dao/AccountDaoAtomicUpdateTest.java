@@ -0,0 +1,150 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.util.TransactionHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AccountDaoAtomicUpdateTest {
+
+    private AnnotationConfigApplicationContext context;
+    private AccountDao accountDao;
+    private UserDao userDao;
+    private TransactionHelper transactionHelper;
+    private Statistics statistics;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("atomic_update_test", Map.of("bank.balance.atomic-updates", "true"));
+        accountDao = context.getBean(AccountDao.class);
+        userDao = context.getBean(UserDao.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+        statistics = context.getBean(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testDepositAndWithdrawDoNotLoadAccount() {
+        Long accountId = userDao.addUser("atomic_owner").getAccountId();
+
+        long loadsBefore = statistics.getEntityLoadCount();
+
+        assertTrue(accountDao.deposit(accountId, new BigDecimal("150.00")).isSuccess());
+        assertTrue(accountDao.withdraw(accountId, new BigDecimal("50.00")).isSuccess());
+
+        assertEquals(0, statistics.getEntityLoadCount() - loadsBefore);
+        assertEquals(0, new BigDecimal("100.00").compareTo(accountDao.getAccountById(accountId).getBalance()));
+        assertEquals(1, ledgerRows(accountId, TransactionType.DEPOSIT));
+        assertEquals(1, ledgerRows(accountId, TransactionType.WITHDRAWAL));
+    }
+
+    @Test
+    void testWithdrawRejectsInsufficientFunds() {
+        Long accountId = userDao.addUser("atomic_poor").getAccountId();
+        assertTrue(accountDao.deposit(accountId, new BigDecimal("10.00")).isSuccess());
+
+        assertFalse(accountDao.withdraw(accountId, new BigDecimal("10.01")).isSuccess());
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(accountDao.getAccountById(accountId).getBalance()));
+        assertEquals(0, ledgerRows(accountId, TransactionType.WITHDRAWAL));
+    }
+
+    @Test
+    void testClosedOrMissingAccountIsRejected() {
+        Long accountId = userDao.addUser("atomic_closed").getAccountId();
+        transactionHelper.executeInTransaction(session -> {
+            session.find(Account.class, accountId).setClosed(true);
+        });
+
+        assertFalse(accountDao.deposit(accountId, BigDecimal.ONE).isSuccess());
+        assertFalse(accountDao.withdraw(accountId, BigDecimal.ONE).isSuccess());
+        assertFalse(accountDao.deposit(Long.MAX_VALUE, BigDecimal.ONE).isSuccess());
+        assertFalse(accountDao.withdraw(Long.MAX_VALUE, BigDecimal.ONE).isSuccess());
+        assertEquals(0, ledgerRows(accountId, TransactionType.DEPOSIT));
+    }
+
+    @Test
+    void testDepositToClosedAccountIsCountedAsClosed() {
+        OperationMetrics metrics = context.getBean(OperationMetrics.class);
+        Long accountId = userDao.addUser("atomic_closed_metrics").getAccountId();
+        transactionHelper.executeInTransaction(session -> {
+            session.find(Account.class, accountId).setClosed(true);
+        });
+        long closed = metrics.getFailures(Operation.DEPOSIT, FailureReason.ACCOUNT_CLOSED);
+        long notFound = metrics.getFailures(Operation.DEPOSIT, FailureReason.ACCOUNT_NOT_FOUND);
+
+        assertEquals(FailureReason.ACCOUNT_CLOSED, accountDao.deposit(accountId, BigDecimal.ONE).getFailure());
+        assertEquals(FailureReason.ACCOUNT_NOT_FOUND, accountDao.deposit(Long.MAX_VALUE, BigDecimal.ONE).getFailure());
+
+        assertEquals(closed + 1, metrics.getFailures(Operation.DEPOSIT, FailureReason.ACCOUNT_CLOSED));
+        assertEquals(notFound + 1, metrics.getFailures(Operation.DEPOSIT, FailureReason.ACCOUNT_NOT_FOUND));
+    }
+
+    @Test
+    void testSubKopeckAmountsAreRejected() {
+        Long accountId = userDao.addUser("atomic_sub_kopeck").getAccountId();
+        assertSubKopeckAmountsRejected(accountDao, accountId);
+        assertEquals(1, ledgerRows(accountId, TransactionType.DEPOSIT));
+        assertEquals(1, ledgerRows(accountId, TransactionType.WITHDRAWAL));
+        try (AnnotationConfigApplicationContext locked = H2TestContext.create("locked_sub_kopeck_test",
+                Map.of("bank.balance.atomic-updates", "false"))) {
+            assertSubKopeckAmountsRejected(locked.getBean(AccountDao.class),
+                    locked.getBean(UserDao.class).addUser("locked_sub_kopeck").getAccountId());
+        }
+    }
+
+    @Test
+    void testAtomicUpdateBumpsVersion() {
+        Long accountId = userDao.addUser("atomic_version").getAccountId();
+        Long versionBefore = accountDao.getAccountById(accountId).getVersion();
+
+        assertTrue(accountDao.deposit(accountId, BigDecimal.TEN).isSuccess());
+
+        assertEquals(versionBefore + 1, accountDao.getAccountById(accountId).getVersion());
+    }
+
+    private static void assertSubKopeckAmountsRejected(AccountDao dao, Long accountId) {
+        assertTrue(dao.deposit(accountId, new BigDecimal("10.00")).isSuccess());
+
+        assertEquals(FailureReason.INVALID_AMOUNT, dao.deposit(accountId, new BigDecimal("0.005")).getFailure());
+        assertEquals(FailureReason.INVALID_AMOUNT, dao.withdraw(accountId, new BigDecimal("0.005")).getFailure());
+        assertEquals(FailureReason.INVALID_AMOUNT, dao.withdraw(accountId, new BigDecimal("1.001")).getFailure());
+
+        assertEquals(new BigDecimal("10.00"), dao.getAccountById(accountId).getBalance());
+        assertTrue(dao.withdraw(accountId, new BigDecimal("1.000")).isSuccess());
+        assertEquals(new BigDecimal("9.00"), dao.getAccountById(accountId).getBalance());
+    }
+
+    private long ledgerRows(Long accountId, TransactionType type) {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery(
+                            "SELECT COUNT(t) FROM Transaction t WHERE t.fromAccount.id = :id AND t.type = :type",
+                            Long.class)
+                    .setParameter("id", accountId)
+                    .setParameter("type", type)
+                    .uniqueResult();
+        });
+    }
+}
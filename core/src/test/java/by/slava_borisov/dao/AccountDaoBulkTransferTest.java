@@ -0,0 +1,161 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.util.TransactionHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AccountDaoBulkTransferTest {
+
+    private static final int RECIPIENTS = 120;
+
+    private AnnotationConfigApplicationContext context;
+    private AccountDao accountDao;
+    private UserDao userDao;
+    private TransactionHelper transactionHelper;
+    private Statistics statistics;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("bulk_transfer_test");
+        accountDao = context.getBean(AccountDao.class);
+        userDao = context.getBean(UserDao.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+        statistics = context.getBean(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testPayrollIsSettledWithBatchedStatements() {
+        Long source = newAccount("payroll_source", new BigDecimal("1000.00"));
+        List<Long> staff = newAccounts("payroll_staff", RECIPIENTS);
+        List<TransferInstruction> payroll = new ArrayList<>();
+        for (Long recipient : staff) {
+            payroll.add(new TransferInstruction(source, recipient, new BigDecimal("2.50")));
+        }
+
+        long statementsBefore = statistics.getPrepareStatementCount();
+        BulkTransferResult result = accountDao.transferAll(payroll, TransferFailurePolicy.ALL_OR_NOTHING);
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+
+        assertTrue(result.isFullyApplied());
+        assertEquals(RECIPIENTS, result.getApplied());
+        // комиссия 5% с 2.50 = 0.125, округляется до 0.13
+        assertEquals(0, new BigDecimal("15.60").compareTo(result.getFees()));
+        assertEquals(0, new BigDecimal("684.40").compareTo(balance(source)));
+        assertEquals(0, new BigDecimal("2.50").compareTo(balance(staff.get(RECIPIENTS - 1))));
+        assertEquals(RECIPIENTS, ledgerRows(source, TransactionType.TRANSFER));
+        assertEquals(RECIPIENTS, ledgerRows(source, TransactionType.FEE));
+        assertTrue(statements < RECIPIENTS / 2,
+                "обновления и записи журнала должны уходить пакетами, подготовлено запросов: " + statements);
+    }
+
+    @Test
+    void testAllOrNothingRejectsWholeBatch() {
+        Long source = newAccount("strict_source", new BigDecimal("10.00"));
+        List<Long> staff = newAccounts("strict_staff", 2);
+
+        BulkTransferResult result = accountDao.transferAll(List.of(
+                new TransferInstruction(source, staff.get(0), new BigDecimal("5.00")),
+                new TransferInstruction(source, staff.get(1), new BigDecimal("5.00")),
+                new TransferInstruction(source, -1L, new BigDecimal("1.00"))), TransferFailurePolicy.ALL_OR_NOTHING);
+
+        assertEquals(0, result.getApplied());
+        assertEquals(Map.of(1, FailureReason.INSUFFICIENT_FUNDS, 2, FailureReason.ACCOUNT_NOT_FOUND),
+                result.getRejected());
+        assertEquals(0, new BigDecimal("10.00").compareTo(balance(source)));
+        assertEquals(0, ledgerRows(source, TransactionType.TRANSFER));
+    }
+
+    @Test
+    void testSkipInvalidAppliesTheRest() {
+        Long source = newAccount("lenient_source", new BigDecimal("10.00"));
+        List<Long> staff = newAccounts("lenient_staff", 2);
+
+        BulkTransferResult result = accountDao.transferAll(List.of(
+                new TransferInstruction(source, staff.get(0), new BigDecimal("4.00")),
+                new TransferInstruction(source, staff.get(1), new BigDecimal("-1.00")),
+                new TransferInstruction(source, staff.get(1), new BigDecimal("20.00")),
+                new TransferInstruction(staff.get(0), staff.get(1), new BigDecimal("4.00"))),
+                TransferFailurePolicy.SKIP_INVALID);
+
+        assertEquals(2, result.getApplied());
+        assertEquals(Map.of(1, FailureReason.INVALID_AMOUNT, 2, FailureReason.INSUFFICIENT_FUNDS),
+                result.getRejected());
+        assertEquals(0, new BigDecimal("5.80").compareTo(balance(source)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance(staff.get(0))));
+        assertEquals(0, new BigDecimal("4.00").compareTo(balance(staff.get(1))));
+    }
+
+    @Test
+    void testSingleTransferReportsFeeAndRejectionReason() {
+        Long sender = newAccount("single_sender", new BigDecimal("100.00"));
+        Long recipient = newAccounts("single_recipient", 1).get(0);
+
+        OperationResult applied = accountDao.transfer(sender, recipient, new BigDecimal("10.00"));
+        OperationResult rejected = accountDao.transfer(sender, recipient, new BigDecimal("500.00"));
+
+        assertTrue(applied.isSuccess());
+        assertEquals(Operation.TRANSFER, applied.getOperation());
+        assertEquals(sender, applied.getAccountId());
+        assertEquals(recipient, applied.getTargetAccountId());
+        assertEquals(0, new BigDecimal("0.50").compareTo(applied.getFee()));
+        assertEquals(FailureReason.INSUFFICIENT_FUNDS, rejected.getFailure());
+        assertNull(rejected.getFee());
+    }
+
+    private Long newAccount(String login, BigDecimal initialBalance) {
+        Long accountId = newAccounts(login, 1).get(0);
+        assertTrue(accountDao.deposit(accountId, initialBalance).isSuccess());
+        return accountId;
+    }
+
+    private List<Long> newAccounts(String login, int count) {
+        OperationResult user = userDao.addUser(login);
+        assertTrue(user.isSuccess());
+        List<Long> accounts = new ArrayList<>(List.of(user.getAccountId()));
+        for (int i = 1; i < count; i++) {
+            accounts.add(accountDao.createAccount(user.getUserId()).getAccountId());
+        }
+        return accounts;
+    }
+
+    private BigDecimal balance(Long accountId) {
+        return accountDao.getAccountById(accountId).getBalance();
+    }
+
+    private long ledgerRows(Long accountId, TransactionType type) {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT COUNT(t) FROM Transaction t "
+                            + "WHERE t.fromAccount.id = :accountId AND t.type = :type", Long.class)
+                    .setParameter("accountId", accountId)
+                    .setParameter("type", type)
+                    .uniqueResult();
+        });
+    }
+}
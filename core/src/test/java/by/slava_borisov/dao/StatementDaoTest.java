@@ -0,0 +1,132 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dto.StatementLine;
+import by.slava_borisov.dto.StatementSummary;
+import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.Transaction;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatementDaoTest {
+
+    private static final LocalDate DAY = LocalDate.now().minusDays(10);
+
+    private AnnotationConfigApplicationContext context;
+    private StatementDao statementDao;
+    private AccountDao accountDao;
+    private TransactionHelper transactionHelper;
+    private Long account;
+    private Long other;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("statement_test");
+        statementDao = context.getBean(StatementDao.class);
+        accountDao = context.getBean(AccountDao.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+
+        UserDao userDao = context.getBean(UserDao.class);
+        assertTrue(userDao.addUser("statement_user").isSuccess());
+        assertTrue(accountDao.createAccount(userDao.getUserByLogin("statement_user").getId()).isSuccess());
+        List<Long> accountIds = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a ORDER BY a.id", Long.class).getResultList();
+        });
+        account = accountIds.get(0);
+        other = accountIds.get(1);
+
+        assertTrue(accountDao.deposit(account, new BigDecimal("100.00")).isSuccess());
+        assertTrue(accountDao.deposit(other, new BigDecimal("80.00")).isSuccess());
+        assertTrue(accountDao.transfer(account, other, new BigDecimal("20.00")).isSuccess());
+        assertTrue(accountDao.transfer(other, account, new BigDecimal("50.00")).isSuccess());
+        assertTrue(accountDao.withdraw(account, new BigDecimal("5.00")).isSuccess());
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testRunningBalanceEndsAtAccountBalance() {
+        List<StatementLine> lines = new ArrayList<>();
+        StatementSummary summary = statementDao.streamStatement(account, null, null, lines::add);
+
+        BigDecimal balance = accountDao.getAccountById(account).getBalance();
+        assertEquals(lines.size(), summary.getLines());
+        assertEquals(0, BigDecimal.ZERO.compareTo(summary.getOpeningBalance()));
+        assertEquals(0, balance.compareTo(summary.getClosingBalance()));
+        assertEquals(0, balance.compareTo(lines.get(lines.size() - 1).getBalance()));
+
+        BigDecimal running = BigDecimal.ZERO;
+        for (int i = 0; i < lines.size(); i++) {
+            StatementLine line = lines.get(i);
+            running = running.add(line.getChange());
+            assertEquals(0, running.compareTo(line.getBalance()));
+            if (i > 0) {
+                assertFalse(line.getCreatedAt().isBefore(lines.get(i - 1).getCreatedAt()));
+            }
+        }
+        assertTrue(lines.stream().anyMatch(line -> line.getType() == TransactionType.TRANSFER
+                && other.equals(line.getCounterpartyAccountId())
+                && line.getChange().compareTo(new BigDecimal("50.00")) == 0));
+    }
+
+    @Test
+    void testPeriodStartsFromLedgerOpeningBalance() {
+        Long user = transactionHelper.executeInTransaction(session -> {
+            return session.find(Account.class, account).getUser().getId();
+        });
+        assertTrue(accountDao.createAccount(user).isSuccess());
+        Long fresh = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT MAX(a.id) FROM Account a", Long.class).uniqueResult();
+        });
+        ledgerRow(DAY.minusDays(1), TransactionType.DEPOSIT, "40.00", fresh, null);
+        ledgerRow(DAY, TransactionType.TRANSFER, "15.00", other, fresh);
+        ledgerRow(DAY, TransactionType.TRANSFER, "7.00", fresh, fresh);
+        ledgerRow(DAY.plusDays(1), TransactionType.WITHDRAWAL, "10.00", fresh, null);
+
+        List<StatementLine> lines = new ArrayList<>();
+        StatementSummary summary = statementDao.streamStatement(fresh, DAY, DAY, lines::add);
+
+        assertEquals(0, new BigDecimal("40.00").compareTo(summary.getOpeningBalance()));
+        assertEquals(2, lines.size());
+        assertEquals(0, new BigDecimal("15.00").compareTo(lines.get(0).getChange()));
+        assertEquals(other, lines.get(0).getCounterpartyAccountId());
+        assertEquals(0, BigDecimal.ZERO.compareTo(lines.get(1).getChange()), "Перевод самому себе не меняет баланс");
+        assertEquals(0, new BigDecimal("55.00").compareTo(summary.getClosingBalance()));
+    }
+
+    @Test
+    void testUnknownAccountIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> statementDao.streamStatement(-1L, null, null, line -> fail()));
+    }
+
+    private void ledgerRow(LocalDate day, TransactionType type, String amount, Long from, Long to) {
+        transactionHelper.executeInTransaction(session -> {
+            session.persist(Transaction.builder()
+                    .type(type)
+                    .amount(new BigDecimal(amount))
+                    .createdAt(day.atTime(12, 0))
+                    .fromAccount(session.getReference(Account.class, from))
+                    .toAccount(to != null ? session.getReference(Account.class, to) : null)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.TransactionFilter;
+import by.slava_borisov.dto.TransactionView;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionDaoPaginationTest {
+
+    private AnnotationConfigApplicationContext context;
+    private TransactionDao transactionDao;
+    private Long firstAccountId;
+    private Long secondAccountId;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("transaction_pagination_test");
+        transactionDao = context.getBean(TransactionDao.class);
+        AccountDao accountDao = context.getBean(AccountDao.class);
+        UserDao userDao = context.getBean(UserDao.class);
+        TransactionHelper transactionHelper = context.getBean(TransactionHelper.class);
+
+        userDao.addUser("page_first");
+        userDao.addUser("page_second");
+        List<Long> accountIds = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a ORDER BY a.id", Long.class).getResultList();
+        });
+        firstAccountId = accountIds.get(0);
+        secondAccountId = accountIds.get(1);
+
+        for (int i = 0; i < 5; i++) {
+            accountDao.deposit(firstAccountId, new BigDecimal("100.00"));
+        }
+        accountDao.transfer(firstAccountId, secondAccountId, new BigDecimal("20.00"));
+        accountDao.withdraw(secondAccountId, new BigDecimal("5.00"));
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testPagesCoverWholeLedgerInIdOrder() {
+        List<TransactionView> all = readAll(TransactionFilter.all(), 3);
+
+        // 5 пополнений, перевод, комиссия и снятие
+        assertEquals(8, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() < all.get(i).getId());
+        }
+        assertTrue(all.stream().anyMatch(t -> t.getToAccountId() == null));
+    }
+
+    @Test
+    void testLastPageHasNoCursor() {
+        Page<TransactionView> page = transactionDao.findTransactions(TransactionFilter.all(), null, 8);
+
+        assertEquals(8, page.getItems().size());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    void testFilterByAccountMatchesBothSides() {
+        List<TransactionView> second = readAll(TransactionFilter.builder().accountId(secondAccountId).build(), 2);
+
+        assertEquals(2, second.size());
+        assertEquals(TransactionType.TRANSFER, second.get(0).getType());
+        assertEquals(secondAccountId, second.get(0).getToAccountId());
+        assertEquals(TransactionType.WITHDRAWAL, second.get(1).getType());
+    }
+
+    @Test
+    void testFilterByTypeAndDateRange() {
+        TransactionFilter deposits = TransactionFilter.builder()
+                .type(TransactionType.DEPOSIT)
+                .from(LocalDateTime.now().minusDays(1))
+                .to(LocalDateTime.now().plusDays(1))
+                .build();
+        assertEquals(5, readAll(deposits, 2).size());
+
+        TransactionFilter future = TransactionFilter.builder()
+                .from(LocalDateTime.now().plusDays(1))
+                .build();
+        assertTrue(readAll(future, 2).isEmpty());
+    }
+
+    private List<TransactionView> readAll(TransactionFilter filter, int pageSize) {
+        List<TransactionView> result = new ArrayList<>();
+        Long cursor = null;
+        do {
+            Page<TransactionView> page = transactionDao.findTransactions(filter, cursor, pageSize);
+            assertTrue(page.getItems().size() <= pageSize);
+            result.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return result;
+    }
+}
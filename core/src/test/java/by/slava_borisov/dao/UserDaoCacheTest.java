@@ -0,0 +1,64 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.hibernate.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserDaoCacheTest {
+
+    private AnnotationConfigApplicationContext context;
+    private UserDao userDao;
+    private Statistics statistics;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("user_dao_cache_test");
+        userDao = context.getBean(UserDao.class);
+        statistics = context.getBean(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testRepeatedLookupsRunNoSql() {
+        assertTrue(userDao.addUser("cached_login").isSuccess());
+        User loaded = userDao.getUserByLogin("cached_login");
+
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long queryHitsBefore = statistics.getQueryCacheHitCount();
+        long entityHitsBefore = statistics.getCacheRegionStatistics(User.CACHE_REGION).getHitCount();
+
+        User byLogin = userDao.getUserByLogin("cached_login");
+        User byId = userDao.getUserById(loaded.getId());
+
+        assertEquals(0, statistics.getPrepareStatementCount() - statementsBefore);
+        assertEquals(1, statistics.getQueryCacheHitCount() - queryHitsBefore);
+        assertTrue(statistics.getCacheRegionStatistics(User.CACHE_REGION).getHitCount() > entityHitsBefore);
+        assertEquals(loaded.getId(), byLogin.getId());
+        assertEquals("cached_login", byId.getLogin());
+    }
+
+    @Test
+    void testNewUserInvalidatesCachedLoginQueries() {
+        assertTrue(userDao.addUser("first_login").isSuccess());
+        assertNull(userDao.getUserByLogin("second_login"));
+
+        assertTrue(userDao.addUser("second_login").isSuccess());
+
+        assertNotNull(userDao.getUserByLogin("second_login"), "кэш запроса не должен пережить вставку в users");
+    }
+}
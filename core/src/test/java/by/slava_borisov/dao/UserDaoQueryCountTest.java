@@ -0,0 +1,91 @@
+package by.slava_borisov.dao;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dto.AccountView;
+import by.slava_borisov.dto.Page;
+import by.slava_borisov.dto.UserView;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserDaoQueryCountTest {
+
+    private static final int USERS = 7;
+
+    private AnnotationConfigApplicationContext context;
+    private UserDao userDao;
+    private Statistics statistics;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("user_query_count_test");
+        userDao = context.getBean(UserDao.class);
+        AccountDao accountDao = context.getBean(AccountDao.class);
+        statistics = context.getBean(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < USERS; i++) {
+            String login = "listed_user_" + i;
+            userDao.addUser(login);
+            Long userId = userDao.getUserByLogin(login).getId();
+            for (int extra = 0; extra < i % 3; extra++) {
+                accountDao.createAccount(userId);
+            }
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testEachPageIsOneQuery() {
+        List<UserView> users = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long loadsBefore = statistics.getEntityLoadCount();
+        do {
+            Page<UserView> page = userDao.findUsers(cursor, 3);
+            users.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(pages, statistics.getPrepareStatementCount() - statementsBefore);
+        assertEquals(0, statistics.getEntityLoadCount() - loadsBefore);
+
+        assertEquals(USERS, users.size());
+        for (int i = 0; i < USERS; i++) {
+            UserView user = users.get(i);
+            assertEquals("listed_user_" + i, user.getLogin());
+            assertEquals(1 + i % 3, user.getAccounts().size());
+            for (AccountView account : user.getAccounts()) {
+                assertFalse(account.isClosed());
+            }
+        }
+    }
+
+    @Test
+    void testPageDoesNotSplitUserAccounts() {
+        Page<UserView> page = userDao.findUsers(null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(page.getItems().get(1).getId(), page.getNextCursor());
+        assertEquals(2, page.getItems().get(1).getAccounts().size());
+    }
+}
@@ -0,0 +1,105 @@
+package by.slava_borisov.engine;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AccountOperationEngineTest {
+
+    private AnnotationConfigApplicationContext context;
+    private AccountOperationEngine engine;
+    private AccountDao accountDao;
+    private UserDao userDao;
+    private TransactionHelper transactionHelper;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("operation_engine_test", Map.of(
+                "db.url", "jdbc:h2:mem:operation_engine_test;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "db.pool.maximum-size", "4",
+                "bank.engine.workers", "8",
+                "bank.engine.stripes", "8"));
+        engine = context.getBean(AccountOperationEngine.class);
+        accountDao = context.getBean(AccountDao.class);
+        userDao = context.getBean(UserDao.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testOperationsOnOneAccountKeepSubmissionOrder() {
+        Long account = newAccounts("engine_order", 1).get(0);
+        List<AccountOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            operations.add(AccountOperation.deposit(account, new BigDecimal("10.00")));
+            operations.add(AccountOperation.withdraw(account, new BigDecimal("10.00")));
+        }
+
+        List<OperationResult> results = engine.executeAll(operations);
+
+        assertTrue(results.stream().allMatch(OperationResult::isSuccess), "снятие не должно обгонять пополнение");
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountDao.getAccountById(account).getBalance()));
+    }
+
+    @Test
+    void testParallelTransfersConserveMoney() {
+        List<Long> accounts = newAccounts("engine_transfers", 12);
+        for (Long account : accounts) {
+            assertTrue(accountDao.deposit(account, new BigDecimal("100.00")).isSuccess());
+        }
+        Random random = new Random(42);
+        List<AccountOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            operations.add(AccountOperation.transfer(accounts.get(random.nextInt(accounts.size())),
+                    accounts.get(random.nextInt(accounts.size())), BigDecimal.valueOf(1 + random.nextInt(20))));
+        }
+
+        List<OperationResult> results = engine.executeAll(operations);
+
+        assertTrue(results.stream().anyMatch(OperationResult::isSuccess));
+        BigDecimal total = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT SUM(a.balance) FROM Account a WHERE a.user.login = :login",
+                            BigDecimal.class)
+                    .setParameter("login", "engine_transfers")
+                    .uniqueResult();
+        });
+        // все счета у одного владельца, поэтому комиссий нет
+        assertEquals(0, new BigDecimal("1200.00").compareTo(total));
+    }
+
+    private List<Long> newAccounts(String login, int count) {
+        assertTrue(userDao.addUser(login).isSuccess());
+        Long userId = userDao.getUserByLogin(login).getId();
+        for (int i = 1; i < count; i++) {
+            assertTrue(accountDao.createAccount(userId).isSuccess());
+        }
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a WHERE a.user.id = :userId ORDER BY a.id",
+                            Long.class)
+                    .setParameter("userId", userId)
+                    .getResultList();
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package by.slava_borisov.export;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.util.TransactionHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LedgerExporterTest {
+
+    private AnnotationConfigApplicationContext context;
+    private LedgerExporter ledgerExporter;
+    private Statistics statistics;
+    private Long accountId;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("ledger_exporter_test");
+        ledgerExporter = context.getBean(LedgerExporter.class);
+        statistics = context.getBean(SessionFactory.class).getStatistics();
+
+        context.getBean(UserDao.class).addUser("export_owner");
+        accountId = context.getBean(TransactionHelper.class).executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a", Long.class).uniqueResult();
+        });
+        AccountDao accountDao = context.getBean(AccountDao.class);
+        accountDao.deposit(accountId, new BigDecimal("100.00"));
+        accountDao.withdraw(accountId, new BigDecimal("40.50"));
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testCsvExport() throws IOException {
+        Path file = tempDir.resolve("ledger.csv");
+
+        long loadsBefore = statistics.getEntityLoadCount();
+        ExportReport report = ledgerExporter.export(file, ExportFormat.CSV);
+
+        assertEquals(2, report.getRows());
+        assertEquals(0, statistics.getEntityLoadCount() - loadsBefore);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertEquals("id,type,amount,created_at,from_account_id,to_account_id", lines.get(0));
+        assertTrue(lines.get(1).matches("\\d+,DEPOSIT,100.00,[^,]+," + accountId + ","));
+        assertTrue(lines.get(2).matches("\\d+,WITHDRAWAL,40.50,[^,]+," + accountId + ","));
+    }
+
+    @Test
+    void testJsonLinesExport() throws IOException {
+        Path file = tempDir.resolve("ledger.jsonl");
+
+        ExportReport report = ledgerExporter.export(file, ExportFormat.JSONL);
+
+        assertEquals(2, report.getRows());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).matches("\\{\"id\":\\d+,\"type\":\"DEPOSIT\",\"amount\":100.00,"
+                + "\"createdAt\":\"[^\"]+\",\"fromAccountId\":" + accountId + ",\"toAccountId\":null}"));
+    }
+}
@@ -0,0 +1,261 @@
+package by.slava_borisov.ledger;
+
+import by.slava_borisov.config.Profiles;
+import by.slava_borisov.dao.TransferFailurePolicy;
+import by.slava_borisov.dto.BulkTransferResult;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.dto.UserView;
+import by.slava_borisov.metrics.FailureReason;
+import by.slava_borisov.metrics.Operation;
+import by.slava_borisov.metrics.OperationMetrics;
+import by.slava_borisov.service.AccountService;
+import by.slava_borisov.service.UserService;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerEngineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOperationsFollowBankRules() throws Exception {
+        OperationMetrics metrics = new OperationMetrics();
+        try (LedgerEngine engine = open(metrics, directory.resolve("rules.wal"))) {
+            OperationResult first = engine.createUser("ledger_first");
+            OperationResult second = engine.createUser("ledger_second");
+            assertEquals(FailureReason.LOGIN_TAKEN, engine.createUser("ledger_first").getFailure());
+            Long firstAccount = first.getAccountId();
+            Long secondAccount = second.getAccountId();
+            Long spareAccount = engine.createAccount(first.getUserId()).getAccountId();
+            assertEquals(FailureReason.USER_NOT_FOUND, engine.createAccount(99L).getFailure());
+
+            assertTrue(engine.deposit(firstAccount, new BigDecimal("100.00")).isSuccess());
+            assertEquals(FailureReason.INVALID_AMOUNT, engine.deposit(firstAccount, new BigDecimal("0.001")).getFailure());
+            assertEquals(FailureReason.ACCOUNT_NOT_FOUND, engine.deposit(99L, BigDecimal.TEN).getFailure());
+
+            OperationResult interUser = engine.transfer(firstAccount, secondAccount, new BigDecimal("10.00"));
+            assertEquals(new BigDecimal("0.50"), interUser.getFee());
+            OperationResult intraUser = engine.transfer(firstAccount, spareAccount, new BigDecimal("20.00"));
+            assertEquals(new BigDecimal("0.00"), intraUser.getFee());
+            assertEquals(FailureReason.INSUFFICIENT_FUNDS,
+                    engine.transfer(firstAccount, secondAccount, new BigDecimal("69.51")).getFailure());
+            assertEquals(FailureReason.INSUFFICIENT_FUNDS,
+                    engine.withdraw(secondAccount, new BigDecimal("10.01")).getFailure());
+            assertTrue(engine.withdraw(secondAccount, new BigDecimal("4.00")).isSuccess());
+
+            OperationResult close = engine.closeAccount(spareAccount);
+            assertEquals(firstAccount, close.getTargetAccountId());
+            assertEquals(new BigDecimal("20.00"), close.getAmount());
+            assertEquals(FailureReason.ACCOUNT_CLOSED, engine.deposit(spareAccount, BigDecimal.ONE).getFailure());
+            assertEquals(FailureReason.LAST_ACTIVE_ACCOUNT, engine.closeAccount(firstAccount).getFailure());
+
+            assertEquals(new BigDecimal("89.50"), engine.getBalance(firstAccount));
+            assertEquals(new BigDecimal("6.00"), engine.getBalance(secondAccount));
+            assertEquals(new BigDecimal("0.00"), engine.getBalance(spareAccount));
+            assertEquals(2, metrics.getRejected(Operation.TRANSFER) + metrics.getRejected(Operation.WITHDRAW));
+
+            List<UserView> users = engine.findUsers(null, 1).getItems();
+            assertEquals("ledger_first", users.get(0).getLogin());
+            assertEquals(2, users.get(0).getAccounts().size());
+            assertEquals(1, engine.findUsers(1L, 1).getItems().size());
+            assertFalse(engine.findUsers(1L, 1).hasNext());
+        }
+    }
+
+    @Test
+    void testCloseRejectsBalanceOverflow() throws Exception {
+        try (LedgerEngine engine = open(new OperationMetrics(), directory.resolve("overflow.wal"))) {
+            OperationResult user = engine.createUser("overflow_owner");
+            Long spare = engine.createAccount(user.getUserId()).getAccountId();
+            BigDecimal half = new BigDecimal("50000000000000000.00");
+            assertTrue(engine.deposit(user.getAccountId(), half).isSuccess());
+            assertTrue(engine.deposit(spare, half).isSuccess());
+
+            assertThrows(ArithmeticException.class, () -> engine.closeAccount(spare));
+
+            assertEquals(half, engine.getBalance(spare));
+            assertEquals(half, engine.getBalance(user.getAccountId()));
+            assertEquals(FailureReason.ACCOUNT_NOT_FOUND, engine.deposit(99L, BigDecimal.ONE).getFailure());
+        }
+    }
+
+    @Test
+    void testBulkTransferIsAllOrNothing() throws Exception {
+        try (LedgerEngine engine = open(new OperationMetrics(), directory.resolve("bulk.wal"))) {
+            Long first = engine.createUser("bulk_first").getAccountId();
+            Long second = engine.createUser("bulk_second").getAccountId();
+            engine.deposit(first, new BigDecimal("50.00"));
+
+            List<TransferInstruction> transfers = List.of(
+                    new TransferInstruction(first, second, new BigDecimal("30.00")),
+                    new TransferInstruction(first, second, new BigDecimal("30.00")),
+                    new TransferInstruction(first, 99L, BigDecimal.ONE));
+
+            BulkTransferResult rolledBack = engine.transferAll(transfers, TransferFailurePolicy.ALL_OR_NOTHING);
+            assertEquals(0, rolledBack.getApplied());
+            assertEquals(Map.of(1, FailureReason.INSUFFICIENT_FUNDS, 2, FailureReason.ACCOUNT_NOT_FOUND),
+                    rolledBack.getRejected());
+            assertEquals(new BigDecimal("50.00"), engine.getBalance(first));
+
+            BulkTransferResult skipped = engine.transferAll(transfers, TransferFailurePolicy.SKIP_INVALID);
+            assertEquals(1, skipped.getApplied());
+            assertEquals(new BigDecimal("1.50"), skipped.getFees());
+            assertEquals(new BigDecimal("18.50"), engine.getBalance(first));
+            assertEquals(new BigDecimal("30.00"), engine.getBalance(second));
+        }
+    }
+
+    @Test
+    void testStateIsRestoredFromLog() throws Exception {
+        Path file = directory.resolve("replay.wal");
+        Long first;
+        Long second;
+        try (LedgerEngine engine = open(new OperationMetrics(), file)) {
+            first = engine.createUser("replay_first").getAccountId();
+            second = engine.createUser("replay_second").getAccountId();
+            engine.deposit(first, new BigDecimal("1000.00"));
+            // записей больше, чем помещается в одну область журнала
+            for (int i = 0; i < 40_000; i++) {
+                assertTrue(engine.transfer(first, second, new BigDecimal("0.01")).isSuccess());
+            }
+            engine.transferAll(List.of(new TransferInstruction(second, first, new BigDecimal("100.00"))),
+                    TransferFailurePolicy.SKIP_INVALID);
+            engine.closeAccount(engine.createAccount(1L).getAccountId());
+        }
+
+        try (LedgerEngine engine = open(new OperationMetrics(), file)) {
+            assertEquals(new BigDecimal("700.00"), engine.getBalance(first));
+            assertEquals(new BigDecimal("295.00"), engine.getBalance(second));
+            assertEquals(new BigDecimal("5.00"), engine.getFeesCollected());
+            assertEquals(FailureReason.LOGIN_TAKEN, engine.createUser("replay_first").getFailure());
+            assertEquals(FailureReason.ACCOUNT_CLOSED, engine.deposit(3L, BigDecimal.ONE).getFailure());
+            assertEquals(4L, engine.createAccount(2L).getAccountId());
+        }
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws Exception {
+        Path file = directory.resolve("torn.wal");
+        long tornRecord;
+        try (WriteAheadLog wal = new WriteAheadLog(file, 64, true)) {
+            assertEquals(0, wal.replay(record -> { }));
+            for (int i = 0; i < 5; i++) {
+                wal.begin(Long.BYTES).putLong(i);
+                wal.end();
+            }
+            tornRecord = wal.position() - 16;
+            wal.commit();
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(tornRecord + WriteAheadLog.HEADER_SIZE);
+            raw.write(0x7f);
+        }
+
+        List<Long> values = new ArrayList<>();
+        try (WriteAheadLog wal = new WriteAheadLog(file, 64, true)) {
+            assertEquals(4, wal.replay(record -> values.add(record.getLong())));
+            assertEquals(tornRecord, wal.position());
+            wal.begin(Long.BYTES).putLong(42);
+            wal.end();
+            wal.commit();
+        }
+        values.clear();
+        try (WriteAheadLog wal = new WriteAheadLog(file, 64, true)) {
+            wal.replay(record -> values.add(record.getLong()));
+        }
+        assertEquals(List.of(0L, 1L, 2L, 3L, 42L), values);
+    }
+
+    @Test
+    void testRestartAfterAbortedBulkTransfer() throws Exception {
+        Path file = directory.resolve("aborted.wal");
+        Long first;
+        Long second;
+        try (LedgerEngine engine = open(new OperationMetrics(), file)) {
+            first = engine.createUser("aborted_first").getAccountId();
+            second = engine.createUser("aborted_second").getAccountId();
+            engine.deposit(first, new BigDecimal("100.00"));
+            List<TransferInstruction> transfers = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                transfers.add(new TransferInstruction(first, second, BigDecimal.ONE));
+            }
+            transfers.add(new TransferInstruction(first, 99L, BigDecimal.ONE));
+            assertEquals(0, engine.transferAll(transfers, TransferFailurePolicy.ALL_OR_NOTHING).getApplied());
+            assertTrue(engine.deposit(second, new BigDecimal("5.00")).isSuccess());
+        }
+
+        try (LedgerEngine engine = open(new OperationMetrics(), file)) {
+            assertEquals(new BigDecimal("100.00"), engine.getBalance(first));
+            assertEquals(new BigDecimal("5.00"), engine.getBalance(second));
+            assertTrue(engine.transfer(first, second, new BigDecimal("10.00")).isSuccess());
+        }
+
+        try (LedgerEngine engine = open(new OperationMetrics(), file)) {
+            assertEquals(new BigDecimal("89.50"), engine.getBalance(first));
+            assertEquals(new BigDecimal("15.00"), engine.getBalance(second));
+        }
+    }
+
+    @Test
+    void testAbortedRecordLeavesNoTail() throws Exception {
+        Path file = directory.resolve("abort.wal");
+        long end;
+        try (WriteAheadLog wal = new WriteAheadLog(file, 1024, true)) {
+            wal.replay(record -> { });
+            ByteBuffer aborted = wal.begin(256);
+            for (int i = 0; i < 256; i++) {
+                aborted.put((byte) 0x7f);
+            }
+            wal.abort();
+            wal.begin(Long.BYTES).putLong(42);
+            wal.end();
+            wal.commit();
+            end = wal.position();
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "r")) {
+            byte[] tail = new byte[256];
+            raw.seek(end);
+            raw.readFully(tail);
+            assertArrayEquals(new byte[256], tail);
+        }
+    }
+
+    @Test
+    void testInMemoryProfileStartsWithoutDatabase() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles(Profiles.IN_MEMORY);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("in-memory-test", Map.of(
+                "bank.in-memory.wal.file", directory.resolve("context.wal").toString(),
+                "bank.in-memory.wal.segment-size-mb", "1",
+                "bank.metrics.jmx.enabled", "false")));
+        context.scan("by.slava_borisov");
+        context.refresh();
+        try (context) {
+            assertEquals(0, context.getBeanNamesForType(SessionFactory.class).length);
+            OperationResult user = context.getBean(UserService.class).createUser("profile_user");
+            AccountService accountService = context.getBean(AccountService.class);
+            assertTrue(accountService.accountDeposit(user.getAccountId(), BigDecimal.TEN).isSuccess());
+            assertEquals(1, context.getBean(OperationMetrics.class).getSucceeded(Operation.DEPOSIT));
+        }
+    }
+
+    private static LedgerEngine open(OperationMetrics metrics, Path file) {
+        return new LedgerEngine(metrics, file.toString(), 1, false, 64,
+                new BigDecimal("0.05"), new BigDecimal("0.00"));
+    }
+}
@@ -0,0 +1,62 @@
+package by.slava_borisov.metrics;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.UserDao;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ConnectionPoolMetricsTest {
+
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("connection_pool_metrics_test", Map.of(
+                "db.pool.maximum-size", "4",
+                "db.pool.minimum-idle", "1",
+                "db.pool.idle-timeout-ms", "20000",
+                "db.pool.max-lifetime-ms", "60000",
+                "db.pool.leak-detection-threshold-ms", "5000"));
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testPoolSettingsComeFromProperties() {
+        HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+
+        assertEquals(4, dataSource.getMaximumPoolSize());
+        assertEquals(1, dataSource.getMinimumIdle());
+        assertEquals(20_000, dataSource.getIdleTimeout());
+        assertEquals(60_000, dataSource.getMaxLifetime());
+        assertEquals(5_000, dataSource.getLeakDetectionThreshold());
+        assertFalse(dataSource.isAutoCommit());
+    }
+
+    @Test
+    void testConnectionAcquisitionsAreRecorded() {
+        ConnectionPoolMetrics metrics = context.getBean(ConnectionPoolMetrics.class);
+        long acquisitionsBefore = metrics.getAcquisitionCount();
+
+        context.getBean(UserDao.class).addUser("pool_metrics_user");
+
+        assertEquals(1, metrics.getAcquisitionCount() - acquisitionsBefore);
+        assertEquals(4, metrics.getMaxConnections());
+        assertTrue(metrics.getMaxWaitMillis() >= metrics.getAverageWaitMillis());
+        assertEquals(0, metrics.getTimeoutCount());
+    }
+}
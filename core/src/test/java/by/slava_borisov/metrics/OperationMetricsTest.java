@@ -0,0 +1,117 @@
+package by.slava_borisov.metrics;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.util.TransactionHelper;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OperationMetricsTest {
+
+    @TempDir
+    static Path directory;
+
+    private AnnotationConfigApplicationContext context;
+    private OperationMetrics metrics;
+    private AccountDao accountDao;
+    private Long accountId;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("operation_metrics_test", Map.of(
+                "bank.metrics.file", directory.resolve("metrics.txt").toString(),
+                "bank.metrics.dump-interval-ms", "0"));
+        metrics = context.getBean(OperationMetrics.class);
+        accountDao = context.getBean(AccountDao.class);
+
+        UserDao userDao = context.getBean(UserDao.class);
+        assertTrue(userDao.addUser("metrics_user").isSuccess());
+        accountId = context.getBean(TransactionHelper.class).executeInTransaction(session -> {
+            return session.createQuery("SELECT MIN(a.id) FROM Account a", Long.class).uniqueResult();
+        });
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testOutcomesAndReasonsAreCounted() {
+        long commitsBefore = metrics.getCommits();
+
+        assertTrue(accountDao.deposit(accountId, new BigDecimal("10.00")).isSuccess());
+        assertFalse(accountDao.deposit(-1L, new BigDecimal("10.00")).isSuccess());
+        assertFalse(accountDao.withdraw(accountId, new BigDecimal("1000.00")).isSuccess());
+        assertFalse(accountDao.transfer(accountId, accountId, BigDecimal.ZERO).isSuccess());
+
+        assertEquals(2, metrics.getCount(Operation.DEPOSIT));
+        assertEquals(1, metrics.getSucceeded(Operation.DEPOSIT));
+        assertEquals(1, metrics.getRejected(Operation.DEPOSIT));
+        assertEquals(1, metrics.getFailures(Operation.DEPOSIT, FailureReason.ACCOUNT_NOT_FOUND));
+        assertEquals(1, metrics.getFailures(Operation.WITHDRAW, FailureReason.INSUFFICIENT_FUNDS));
+        assertEquals(1, metrics.getFailures(Operation.TRANSFER, FailureReason.INVALID_AMOUNT));
+        assertTrue(metrics.getLatencyMillis(Operation.DEPOSIT, 50) > 0);
+        assertTrue(metrics.getLatencyMillis(Operation.DEPOSIT, 99.9) >= metrics.getLatencyMillis(Operation.DEPOSIT, 50));
+        assertTrue(metrics.getCommits() > commitsBefore);
+        assertTrue(metrics.getSessionMillis(50) > 0);
+    }
+
+    @Test
+    void testRollbacksAreCountedByReason() {
+        TransactionHelper transactionHelper = context.getBean(TransactionHelper.class);
+        long errors = metrics.getRollbacks(FailureReason.ERROR);
+        long rollbackOnly = metrics.getRollbacks(FailureReason.ROLLBACK_ONLY);
+
+        Consumer<Session> failing = session -> {
+            throw new IllegalArgumentException("сбой");
+        };
+        assertThrows(IllegalArgumentException.class, () -> transactionHelper.executeInTransaction(failing));
+        Consumer<Session> swallowing = session -> {
+            try {
+                transactionHelper.executeInTransaction(failing);
+            } catch (IllegalArgumentException ignored) {
+                // внешняя операция продолжает работу, но транзакция уже помечена на откат
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> transactionHelper.executeInTransaction(swallowing));
+
+        assertEquals(errors + 1, metrics.getRollbacks(FailureReason.ERROR));
+        assertEquals(rollbackOnly + 1, metrics.getRollbacks(FailureReason.ROLLBACK_ONLY));
+    }
+
+    @Test
+    void testReportIsPublishedToFileAndJmx() throws Exception {
+        assertTrue(accountDao.deposit(accountId, new BigDecimal("1.00")).isSuccess());
+        context.getBean(MetricsReporter.class).dump();
+
+        String report = Files.readString(directory.resolve("metrics.txt"));
+        assertTrue(report.contains(Operation.DEPOSIT.getTitle()));
+        assertTrue(report.contains("p99.9"));
+
+        ObjectName name = new ObjectName("by.slava_borisov:type=OperationMetrics,name="
+                + ObjectName.quote("operation_metrics_test"));
+        Object deposits = ManagementFactory.getPlatformMBeanServer().invoke(name, "getCount",
+                new Object[]{"DEPOSIT"}, new String[]{String.class.getName()});
+        assertEquals(metrics.getCount(Operation.DEPOSIT), deposits);
+    }
+}
@@ -0,0 +1,71 @@
+package by.slava_borisov.metrics;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionStatisticsTest {
+
+    private AnnotationConfigApplicationContext context;
+    private TransactionStatistics statistics;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("transaction_statistics_test", Map.of(
+                "bank.statistics.enabled", "true",
+                "bank.cache.accounts.enabled", "false"));
+        statistics = context.getBean(TransactionStatistics.class);
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testStatementsLoadsAndFlushesAreCountedPerTransaction() {
+        UserDao userDao = context.getBean(UserDao.class);
+        AccountDao accountDao = context.getBean(AccountDao.class);
+        assertTrue(userDao.addUser("statistics_user").isSuccess());
+        Long accountId = context.getBean(TransactionHelper.class).executeInTransaction(session -> {
+            return session.createQuery("SELECT MIN(a.id) FROM Account a", Long.class).uniqueResult();
+        });
+
+        long transactions = statistics.getTransactionCount();
+        long statements = statistics.getStatementCount();
+        long loads = statistics.getEntityLoadCount();
+        long flushes = statistics.getFlushCount();
+
+        assertNotNull(accountDao.getAccountById(accountId));
+        assertTrue(accountDao.deposit(accountId, new BigDecimal("5.00")).isSuccess());
+
+        assertEquals(transactions + 2, statistics.getTransactionCount());
+        assertTrue(statistics.getStatementCount() - statements >= 3);
+        assertTrue(statistics.getEntityLoadCount() > loads, "Счёт с владельцем загружается как сущности");
+        assertTrue(statistics.getFlushCount() > flushes);
+        assertTrue(statistics.getMaxStatementsPerTransaction() >= 2);
+    }
+
+    @Test
+    void testReportIncludesHibernateAndTransactionNumbers() {
+        PersistenceStatistics report = context.getBean(PersistenceStatistics.class);
+
+        assertTrue(report.isEnabled());
+        assertTrue(report.toString().contains("HQL-запросов"));
+        assertTrue(report.toString().contains("на транзакцию"));
+    }
+}
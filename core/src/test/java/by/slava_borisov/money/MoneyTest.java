@@ -0,0 +1,42 @@
+package by.slava_borisov.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParseMatchesBigDecimal() {
+        for (String text : new String[]{"0", "7", "-4.5", "10.05", "+12.", "100.000", "92233720368547758.07"}) {
+            assertEquals(new BigDecimal(text).setScale(Money.SCALE), Money.parse(text).toBigDecimal(), text);
+        }
+        assertEquals(Money.of(new BigDecimal("123.40")), Money.parse("123.4"));
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+    }
+
+    @Test
+    void testInvalidAmountsAreRejected() {
+        for (String text : new String[]{"", "-", ".", "1.005", "1,5", "1e3", "92233720368547758.08"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(text), text);
+        }
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void testFeeIsRoundedHalfUpToKopeck() {
+        FeeRate rate = FeeRate.of(new BigDecimal("0.05"));
+
+        for (long units = 0; units < 10_000; units++) {
+            BigDecimal expected = BigDecimal.valueOf(units, Money.SCALE).multiply(new BigDecimal("0.05"))
+                    .setScale(Money.SCALE, RoundingMode.HALF_UP);
+            assertEquals(expected, rate.feeOf(Money.ofMinor(units)).toBigDecimal(), "сумма " + units);
+        }
+        assertEquals(1, rate.feeOf(10));
+        assertEquals(0, rate.feeOf(9));
+        assertEquals(Money.ZERO, FeeRate.of(BigDecimal.ZERO).feeOf(Money.ofMinor(12_345)));
+    }
+}
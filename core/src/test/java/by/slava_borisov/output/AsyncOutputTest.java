@@ -0,0 +1,60 @@
+package by.slava_borisov.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncOutputTest {
+
+    @Test
+    void testFlushWritesEverythingInOrder() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream target = new PrintStream(bytes, false, StandardCharsets.UTF_8);
+
+        try (AsyncOutput output = new AsyncOutput(target, 16)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        output.printf("%d:%d%n", thread, i);
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            output.flush();
+
+            List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+            assertEquals(2000, lines.size());
+            for (int t = 0; t < 4; t++) {
+                String prefix = t + ":";
+                List<String> own = lines.stream().filter(line -> line.startsWith(prefix)).toList();
+                for (int i = 0; i < own.size(); i++) {
+                    assertEquals(prefix + i, own.get(i), "строки одного потока не должны переставляться");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCloseWritesRemainingText() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncOutput output = new AsyncOutput(new PrintStream(bytes, false, StandardCharsets.UTF_8));
+        output.print("Счёт ");
+        output.println(42);
+
+        output.close();
+
+        assertEquals("Счёт 42" + System.lineSeparator(), bytes.toString(StandardCharsets.UTF_8));
+        assertThrows(IllegalStateException.class, () -> output.println("после закрытия"));
+    }
+}
@@ -0,0 +1,149 @@
+package by.slava_borisov.service;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.ReconciliationMismatch;
+import by.slava_borisov.dto.ReconciliationReport;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.hibernate.entity.AccountSnapshot;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReconciliationServiceTest {
+
+    private static final int ACCOUNTS = 30;
+
+    private AnnotationConfigApplicationContext context;
+    private ReconciliationService reconciliationService;
+    private AccountDao accountDao;
+    private TransactionHelper transactionHelper;
+    private List<Long> accountIds;
+
+    @BeforeEach
+    void setUp(TestInfo testInfo) {
+        context = H2TestContext.create("reconciliation_" + testInfo.getTestMethod().orElseThrow().getName(), Map.of(
+                "bank.reconciliation.range-size", "7",
+                "bank.reconciliation.parallelism", "4"));
+        reconciliationService = context.getBean(ReconciliationService.class);
+        accountDao = context.getBean(AccountDao.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+
+        UserDao userDao = context.getBean(UserDao.class);
+        assertTrue(userDao.addUser("reconciliation_user").isSuccess());
+        Long userId = userDao.getUserByLogin("reconciliation_user").getId();
+        for (int i = 1; i < ACCOUNTS; i++) {
+            assertTrue(accountDao.createAccount(userId).isSuccess());
+        }
+        accountIds = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a ORDER BY a.id", Long.class).getResultList();
+        });
+        for (Long accountId : accountIds) {
+            assertTrue(accountDao.deposit(accountId, new BigDecimal("100.00")).isSuccess());
+        }
+        List<TransferInstruction> transfers = new ArrayList<>();
+        for (int i = 0; i < accountIds.size(); i++) {
+            transfers.add(new TransferInstruction(accountIds.get(i), accountIds.get((i + 1) % accountIds.size()),
+                    new BigDecimal("10.00")));
+        }
+        accountDao.transferAll(transfers);
+        assertTrue(accountDao.withdraw(accountIds.get(0), new BigDecimal("5.00")).isSuccess());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testConsistentLedgerWritesSnapshots() {
+        ReconciliationReport first = reconciliationService.reconcileAll();
+
+        assertTrue(first.isConsistent(), first.getMismatches().toString());
+        assertEquals(ACCOUNTS, first.getAccountsChecked());
+        assertEquals(ACCOUNTS, snapshotCount());
+
+        ReconciliationReport second = reconciliationService.reconcileAll();
+
+        assertTrue(second.isConsistent());
+        assertEquals(0, second.getLedgerRowsReplayed(), "Без новых записей журнал не проигрывается");
+
+        Long accountId = accountIds.get(3);
+        assertTrue(accountDao.deposit(accountId, new BigDecimal("7.00")).isSuccess());
+        assertEquals(1, reconciliationService.reconcileAll().getLedgerRowsReplayed());
+        assertTrue(accountDao.withdraw(accountId, new BigDecimal("2.00")).isSuccess());
+        assertNull(reconciliationService.verifyAccount(accountId));
+    }
+
+    @Test
+    void testClosedAccountIsConsistent() {
+        Long accountId = accountIds.get(7);
+        Long targetId = accountIds.get(0);
+        BigDecimal balance = accountDao.getAccountById(accountId).getBalance();
+        BigDecimal targetBalance = accountDao.getAccountById(targetId).getBalance();
+
+        assertTrue(accountDao.closeAccount(accountId).isSuccess());
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountDao.getAccountById(accountId).getBalance()));
+        assertEquals(0, targetBalance.add(balance).compareTo(accountDao.getAccountById(targetId).getBalance()));
+        ReconciliationReport report = reconciliationService.reconcileAll();
+        assertTrue(report.isConsistent(), report.getMismatches().toString());
+        assertNull(reconciliationService.verifyAccount(accountId));
+    }
+
+    @Test
+    void testCorruptedBalanceIsReported() {
+        assertTrue(reconciliationService.reconcileAll().isConsistent());
+        Long accountId = accountIds.get(10);
+        BigDecimal expected = accountDao.getAccountById(accountId).getBalance();
+        transactionHelper.executeInTransaction(session -> {
+            session.createMutationQuery("UPDATE Account a SET a.balance = a.balance + 1 WHERE a.id = :id")
+                    .setParameter("id", accountId)
+                    .executeUpdate();
+        });
+
+        ReconciliationReport report = reconciliationService.reconcileAll();
+
+        assertEquals(1, report.getMismatches().size());
+        ReconciliationMismatch mismatch = report.getMismatches().get(0);
+        assertEquals(accountId, mismatch.getAccountId());
+        assertEquals(0, expected.compareTo(mismatch.getExpected()));
+        assertEquals(0, BigDecimal.ONE.compareTo(mismatch.getDifference()));
+        assertNotNull(reconciliationService.verifyAccount(accountId));
+    }
+
+    @Test
+    void testStaleSnapshotIsRebuiltByFullReplay() {
+        assertTrue(reconciliationService.reconcileAll().isConsistent());
+        Long accountId = accountIds.get(5);
+        // снимок, пропустивший запись журнала, даёт ложное расхождение
+        transactionHelper.executeInTransaction(session -> {
+            session.find(AccountSnapshot.class, accountId).setBalance(new BigDecimal("1.00"));
+        });
+
+        assertNull(reconciliationService.verifyAccount(accountId));
+        BigDecimal snapshotBalance = transactionHelper.executeInTransaction(session -> {
+            return session.find(AccountSnapshot.class, accountId).getBalance();
+        });
+        assertEquals(0, accountDao.getAccountById(accountId).getBalance().compareTo(snapshotBalance));
+    }
+
+    private long snapshotCount() {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT COUNT(s) FROM AccountSnapshot s", Long.class).uniqueResult();
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package by.slava_borisov.service;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.DailyTotal;
+import by.slava_borisov.dto.ReportFilter;
+import by.slava_borisov.dto.TypeTotal;
+import by.slava_borisov.hibernate.entity.Account;
+import by.slava_borisov.hibernate.entity.Transaction;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import by.slava_borisov.util.TransactionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate FIRST_DAY = TODAY.minusDays(3);
+    private static final LocalDate SECOND_DAY = TODAY.minusDays(2);
+
+    private AnnotationConfigApplicationContext context;
+    private ReportService reportService;
+    private TransactionHelper transactionHelper;
+    private Long first;
+    private Long second;
+
+    @BeforeEach
+    void setUp(TestInfo testInfo) {
+        context = H2TestContext.create("report_" + testInfo.getTestMethod().orElseThrow().getName(), Map.of(
+                "bank.reports.rollup.lag-minutes", "0"));
+        reportService = context.getBean(ReportService.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+
+        UserDao userDao = context.getBean(UserDao.class);
+        AccountDao accountDao = context.getBean(AccountDao.class);
+        assertTrue(userDao.addUser("report_user").isSuccess());
+        assertTrue(accountDao.createAccount(userDao.getUserByLogin("report_user").getId()).isSuccess());
+        List<Long> accountIds = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT a.id FROM Account a ORDER BY a.id", Long.class).getResultList();
+        });
+        first = accountIds.get(0);
+        second = accountIds.get(1);
+
+        ledgerRow(FIRST_DAY, TransactionType.DEPOSIT, "100.00", first, null);
+        ledgerRow(FIRST_DAY, TransactionType.TRANSFER, "30.00", first, second);
+        ledgerRow(FIRST_DAY, TransactionType.FEE, "1.50", first, null);
+        ledgerRow(SECOND_DAY, TransactionType.DEPOSIT, "50.00", second, null);
+        ledgerRow(SECOND_DAY, TransactionType.WITHDRAWAL, "20.00", second, null);
+        assertTrue(accountDao.deposit(first, new BigDecimal("10.00")).isSuccess());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testDailyTotalsCombineRollupAndLedger() {
+        List<DailyTotal> totals = reportService.getDailyTotals(ReportFilter.builder().accountId(first).build());
+
+        assertEquals(TODAY.minusDays(1), reportService.rollUp());
+        assertTrue(rolledUpRows() > 0);
+        assertDaily(totals.get(0), FIRST_DAY, TransactionType.DEPOSIT, 1, "100.00", 0, "0");
+        assertDaily(totals.get(1), FIRST_DAY, TransactionType.TRANSFER, 1, "30.00", 0, "0");
+        assertDaily(totals.get(2), FIRST_DAY, TransactionType.FEE, 1, "1.50", 0, "0");
+        assertTrue(totals.stream().anyMatch(total -> total.getDate().equals(TODAY)
+                && total.getType() == TransactionType.DEPOSIT
+                && total.getOutgoingAmount().compareTo(new BigDecimal("10.00")) == 0));
+
+        List<DailyTotal> received = reportService.getDailyTotals(ReportFilter.builder()
+                .accountId(second).type(TransactionType.TRANSFER).build());
+        assertEquals(1, received.size());
+        assertDaily(received.get(0), FIRST_DAY, TransactionType.TRANSFER, 0, "0", 1, "30.00");
+    }
+
+    @Test
+    void testTypeTotalsCountEachLedgerRowOnce() {
+        List<TypeTotal> totals = reportService.getTypeTotals(ReportFilter.builder()
+                .from(FIRST_DAY).to(TODAY).build());
+
+        assertType(totals, TransactionType.DEPOSIT, 3, "160.00");
+        assertType(totals, TransactionType.TRANSFER, 1, "30.00");
+        assertType(totals, TransactionType.FEE, 1, "1.50");
+        assertType(totals, TransactionType.WITHDRAWAL, 1, "20.00");
+
+        List<TypeTotal> secondDay = reportService.getTypeTotals(ReportFilter.builder()
+                .accountId(second).from(SECOND_DAY).to(SECOND_DAY).build());
+        assertEquals(2, secondDay.size());
+        assertType(secondDay, TransactionType.DEPOSIT, 1, "50.00");
+    }
+
+    @Test
+    void testRolledUpDaysAreNotRescanned() {
+        assertEquals(TODAY.minusDays(1), reportService.rollUp());
+        // запись задним числом после свёртки дня в отчёт уже не попадает
+        ledgerRow(FIRST_DAY, TransactionType.DEPOSIT, "999.00", first, null);
+
+        List<TypeTotal> totals = reportService.getTypeTotals(ReportFilter.builder()
+                .type(TransactionType.DEPOSIT).from(FIRST_DAY).to(FIRST_DAY).build());
+
+        assertType(totals, TransactionType.DEPOSIT, 1, "100.00");
+    }
+
+    private void ledgerRow(LocalDate day, TransactionType type, String amount, Long from, Long to) {
+        transactionHelper.executeInTransaction(session -> {
+            session.persist(Transaction.builder()
+                    .type(type)
+                    .amount(new BigDecimal(amount))
+                    .createdAt(day.atTime(12, 0))
+                    .fromAccount(session.getReference(Account.class, from))
+                    .toAccount(to != null ? session.getReference(Account.class, to) : null)
+                    .build());
+        });
+    }
+
+    private long rolledUpRows() {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT COUNT(d) FROM DailyAccountTotal d", Long.class).uniqueResult();
+        });
+    }
+
+    private static void assertDaily(DailyTotal total, LocalDate date, TransactionType type, long outgoingCount,
+                                    String outgoingAmount, long incomingCount, String incomingAmount) {
+        assertEquals(date, total.getDate());
+        assertEquals(type, total.getType());
+        assertEquals(outgoingCount, total.getOutgoingCount());
+        assertEquals(0, new BigDecimal(outgoingAmount).compareTo(total.getOutgoingAmount()));
+        assertEquals(incomingCount, total.getIncomingCount());
+        assertEquals(0, new BigDecimal(incomingAmount).compareTo(total.getIncomingAmount()));
+    }
+
+    private static void assertType(List<TypeTotal> totals, TransactionType type, long count, String amount) {
+        TypeTotal total = totals.stream().filter(t -> t.getType() == type).findFirst().orElseThrow();
+        assertEquals(count, total.getCount());
+        assertEquals(0, new BigDecimal(amount).compareTo(total.getAmount()));
+    }
+}
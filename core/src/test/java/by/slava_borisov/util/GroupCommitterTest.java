@@ -0,0 +1,157 @@
+package by.slava_borisov.util;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.TransferFailurePolicy;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.dto.OperationResult;
+import by.slava_borisov.dto.TransferInstruction;
+import by.slava_borisov.hibernate.entity.TransactionType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class GroupCommitterTest {
+
+    private static final int THREADS = 8;
+    private static final int DEPOSITS_PER_THREAD = 50;
+
+    private AnnotationConfigApplicationContext context;
+    private GroupCommitter groupCommitter;
+    private AccountDao accountDao;
+    private UserDao userDao;
+    private TransactionHelper transactionHelper;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("group_commit_test", Map.of(
+                "db.url", "jdbc:h2:mem:group_commit_test;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "bank.ledger.group-commit.enabled", "true",
+                "bank.ledger.group-commit.max-batch-size", "32",
+                "bank.ledger.group-commit.max-linger-ms", "20"));
+        groupCommitter = context.getBean(GroupCommitter.class);
+        accountDao = context.getBean(AccountDao.class);
+        userDao = context.getBean(UserDao.class);
+        transactionHelper = context.getBean(TransactionHelper.class);
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testConcurrentDepositsShareCommits() throws Exception {
+        List<Long> accounts = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            accounts.add(userDao.addUser("group_owner_" + t).getAccountId());
+        }
+        long batchesBefore = groupCommitter.getBatchCount();
+        long unitsBefore = groupCommitter.getUnitCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long account : accounts) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < DEPOSITS_PER_THREAD; i++) {
+                    assertTrue(accountDao.deposit(account, BigDecimal.ONE).isSuccess());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long units = groupCommitter.getUnitCount() - unitsBefore;
+        long batches = groupCommitter.getBatchCount() - batchesBefore;
+        assertEquals(THREADS * DEPOSITS_PER_THREAD, units);
+        assertTrue(batches < units / 2, "ожидались общие фиксации, пакетов: " + batches);
+        for (Long account : accounts) {
+            assertEquals(0, BigDecimal.valueOf(DEPOSITS_PER_THREAD)
+                    .compareTo(accountDao.getAccountById(account).getBalance()));
+            assertEquals(DEPOSITS_PER_THREAD, depositRows(account));
+        }
+    }
+
+    @Test
+    void testFailedBatchIsReplayedOneByOne() {
+        Long account = userDao.addUser("group_fallback").getAccountId();
+        long fallbacksBefore = groupCommitter.getFallbackCount();
+
+        CompletableFuture<OperationResult> first =
+                groupCommitter.submit(session -> accountDao.deposit(account, BigDecimal.TEN));
+        CompletableFuture<Object> broken = groupCommitter.submit(session -> {
+            throw new IllegalStateException("сбой операции");
+        });
+        CompletableFuture<OperationResult> second =
+                groupCommitter.submit(session -> accountDao.deposit(account, BigDecimal.ONE));
+
+        assertTrue(first.join().isSuccess());
+        assertTrue(second.join().isSuccess());
+        CompletionException error = assertThrows(CompletionException.class, broken::join);
+        assertEquals("сбой операции", error.getCause().getMessage());
+        assertEquals(1, groupCommitter.getFallbackCount() - fallbacksBefore);
+        assertEquals(0, new BigDecimal("11.00").compareTo(accountDao.getAccountById(account).getBalance()));
+        assertEquals(2, depositRows(account));
+    }
+
+    @Test
+    void testBatchDoesNotDeadlockWithOrderedLocking() throws Exception {
+        Long low = userDao.addUser("group_low").getAccountId();
+        Long high = userDao.addUser("group_high").getAccountId();
+        assertTrue(accountDao.deposit(low, new BigDecimal("1000.00")).isSuccess());
+        long fallbacksBefore = groupCommitter.getFallbackCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean bulk = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < DEPOSITS_PER_THREAD / 2; i++) {
+                    if (bulk) {
+                        // пакет переводов идёт мимо групповой фиксации и блокирует счета по возрастанию ID
+                        assertTrue(accountDao.transferAll(List.of(new TransferInstruction(low, high, BigDecimal.ONE)),
+                                TransferFailurePolicy.ALL_OR_NOTHING).isFullyApplied());
+                    } else {
+                        assertTrue(accountDao.deposit(high, BigDecimal.ONE).isSuccess());
+                        assertTrue(accountDao.deposit(low, BigDecimal.ONE).isSuccess());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(0, groupCommitter.getFallbackCount() - fallbacksBefore);
+    }
+
+    private long depositRows(Long accountId) {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT COUNT(t) FROM Transaction t "
+                            + "WHERE t.fromAccount.id = :accountId AND t.type = :type", Long.class)
+                    .setParameter("accountId", accountId)
+                    .setParameter("type", TransactionType.DEPOSIT)
+                    .uniqueResult();
+        });
+    }
+}
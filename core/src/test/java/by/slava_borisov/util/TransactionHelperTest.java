@@ -0,0 +1,170 @@
+package by.slava_borisov.util;
+
+import by.slava_borisov.H2TestContext;
+import by.slava_borisov.dao.AccountDao;
+import by.slava_borisov.dao.UserDao;
+import by.slava_borisov.hibernate.entity.User;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionHelperTest {
+
+    private AnnotationConfigApplicationContext context;
+    private TransactionHelper transactionHelper;
+    private AccountDao accountDao;
+    private UserDao userDao;
+    private Statistics statistics;
+
+    @BeforeAll
+    void setUp() {
+        context = H2TestContext.create("transaction_helper_test");
+        transactionHelper = context.getBean(TransactionHelper.class);
+        accountDao = context.getBean(AccountDao.class);
+        userDao = context.getBean(UserDao.class);
+        statistics = context.getBean(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void testNestedCallJoinsOuterSession() {
+        transactionHelper.executeInTransaction(outer -> {
+            Session inner = transactionHelper.executeInTransaction(session -> {
+                return session;
+            });
+            assertSame(outer, inner);
+            assertTrue(transactionHelper.isTransactionActive());
+        });
+        assertFalse(transactionHelper.isTransactionActive());
+    }
+
+    @Test
+    void testRequiresNewOpensSeparateSession() {
+        transactionHelper.executeInTransaction(outer -> {
+            Session inner = transactionHelper.executeInTransaction(Propagation.REQUIRES_NEW, session -> {
+                return session;
+            });
+            assertNotSame(outer, inner);
+
+            Session afterInner = transactionHelper.executeInTransaction(session -> {
+                return session;
+            });
+            assertSame(outer, afterInner);
+        });
+    }
+
+    @Test
+    void testRequiresNewCommitsIndependentlyOfOuterRollback() {
+        assertThrows(IllegalStateException.class, () -> transactionHelper.executeInTransaction((Consumer<Session>) session -> {
+            transactionHelper.executeInTransaction(Propagation.REQUIRES_NEW, inner -> {
+                userDao.addUser("requires_new_user");
+            });
+            userDao.addUser("rolled_back_user");
+            throw new IllegalStateException("outer failure");
+        }));
+
+        assertNotNull(userDao.getUserByLogin("requires_new_user"));
+        assertNull(userDao.getUserByLogin("rolled_back_user"));
+    }
+
+    @Test
+    void testFailedNestedCallRollsBackOuterTransaction() {
+        assertThrows(IllegalStateException.class, () -> transactionHelper.executeInTransaction(session -> {
+            userDao.addUser("swallowed_failure_user");
+            try {
+                transactionHelper.executeInTransaction((Consumer<Session>) inner -> {
+                    throw new IllegalArgumentException("nested failure");
+                });
+            } catch (IllegalArgumentException ignored) {
+                // вызывающий код проглотил ошибку, но транзакция всё равно должна откатиться
+            }
+        }));
+
+        assertNull(userDao.getUserByLogin("swallowed_failure_user"));
+    }
+
+    @Test
+    void testTransferUsesSingleSession() {
+        userDao.addUser("session_sender");
+        userDao.addUser("session_recipient");
+        Long senderAccountId = firstAccountId("session_sender");
+        Long recipientAccountId = firstAccountId("session_recipient");
+        assertTrue(accountDao.deposit(senderAccountId, new BigDecimal("100.00")).isSuccess());
+
+        long sessionsBefore = statistics.getSessionOpenCount();
+        long transactionsBefore = statistics.getTransactionCount();
+
+        assertTrue(accountDao.transfer(senderAccountId, recipientAccountId, new BigDecimal("10.00")).isSuccess());
+
+        assertEquals(1, statistics.getSessionOpenCount() - sessionsBefore);
+        assertEquals(1, statistics.getTransactionCount() - transactionsBefore);
+
+        Long ledgerRows = transactionHelper.executeInTransaction(session -> {
+            return session.createQuery("SELECT COUNT(t) FROM Transaction t WHERE t.fromAccount.id = :id",
+                            Long.class)
+                    .setParameter("id", senderAccountId)
+                    .uniqueResult();
+        });
+        // DEPOSIT, TRANSFER и FEE
+        assertEquals(3, ledgerRows);
+    }
+
+    @Test
+    void testCreateAccountUsesSingleSession() {
+        userDao.addUser("session_owner");
+        User user = userDao.getUserByLogin("session_owner");
+
+        long sessionsBefore = statistics.getSessionOpenCount();
+
+        assertTrue(accountDao.createAccount(user.getId()).isSuccess());
+
+        assertEquals(1, statistics.getSessionOpenCount() - sessionsBefore);
+    }
+
+    @Test
+    void testAfterCommitCallbacksRunOnlyOnCommit() {
+        List<String> events = new ArrayList<>();
+
+        transactionHelper.executeInTransaction((Consumer<Session>) session -> {
+            transactionHelper.afterCommit(() -> events.add("committed"));
+            events.add("inside");
+        });
+        assertThrows(IllegalStateException.class, () ->
+                transactionHelper.executeInTransaction((Consumer<Session>) session -> {
+                    transactionHelper.afterCommit(() -> events.add("rolled back"));
+                    throw new IllegalStateException("откат");
+                }));
+        transactionHelper.afterCommit(() -> events.add("no transaction"));
+
+        assertEquals(List.of("inside", "committed", "no transaction"), events);
+    }
+
+    private Long firstAccountId(String login) {
+        return transactionHelper.executeInTransaction(session -> {
+            return session.createQuery(
+                            "SELECT a.id FROM Account a WHERE a.user.login = :login ORDER BY a.id", Long.class)
+                    .setParameter("login", login)
+                    .setMaxResults(1)
+                    .uniqueResult();
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package by.slava_borisov.hibernate.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Итоги журнала за день по счёту и типу операции. Строки пишет только свёртка журнала.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(DailyAccountTotal.Key.class)
+@Table(name = "daily_account_totals")
+public class DailyAccountTotal {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "ledger_date")
+    private LocalDate date;
+
+    @Id
+    @Column(name = "transaction_type")
+    @Enumerated(EnumType.STRING)
+    private TransactionType type;
+
+    @Column(name = "outgoing_count", nullable = false)
+    private long outgoingCount;
+
+    @Column(name = "outgoing_amount", nullable = false)
+    private BigDecimal outgoingAmount;
+
+    @Column(name = "incoming_count", nullable = false)
+    private long incomingCount;
+
+    @Column(name = "incoming_amount", nullable = false)
+    private BigDecimal incomingAmount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private Long accountId;
+        private LocalDate date;
+        private TransactionType type;
+    }
+}
@@ -0,0 +1,32 @@
+package by.slava_borisov.hibernate.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Состояние свёртки журнала в дневные итоги. Строка одна, её блокировка упорядочивает свёртки.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "ledger_rollups")
+public class LedgerRollup {
+
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    /**
+     * Последний день, итоги которого уже в {@link DailyAccountTotal}, или {@code null}.
+     */
+    @Column(name = "rolled_up_through")
+    private LocalDate rolledUpThrough;
+}
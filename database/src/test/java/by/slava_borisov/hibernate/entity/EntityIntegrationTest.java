@@ -1,5 +1,6 @@
 package by.slava_borisov.hibernate.entity;
 
+import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistry;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.TestInstance;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -212,4 +214,56 @@ class EntityIntegrationTest {
         assertEquals(new BigDecimal("1234567890123456.78"), foundAccount.getBalance());
         session.close();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testManyToOneAssociationsAreLazy() {
+        Session session = sessionFactory.openSession();
+        session.beginTransaction();
+
+        User user = User.builder()
+                .login("lazyuser")
+                .createdAt(LocalDateTime.now())
+                .build();
+        session.persist(user);
+
+        Account account = Account.builder()
+                .balance(new BigDecimal("10.00"))
+                .isClosed(false)
+                .createdAt(LocalDateTime.now())
+                .user(user)
+                .build();
+        session.persist(account);
+
+        Transaction deposit = Transaction.builder()
+                .amount(new BigDecimal("10.00"))
+                .type(TransactionType.DEPOSIT)
+                .createdAt(LocalDateTime.now())
+                .fromAccount(account)
+                .build();
+        session.persist(deposit);
+
+        session.getTransaction().commit();
+        session.close();
+
+        session = sessionFactory.openSession();
+
+        // Счёт загружается без владельца, транзакция — без счетов
+        Account foundAccount = session.find(Account.class, account.getId());
+        assertFalse(Hibernate.isInitialized(foundAccount.getUser()));
+        assertEquals(user.getId(), foundAccount.getUser().getId());
+        assertFalse(Hibernate.isInitialized(foundAccount.getUser()));
+
+        session.clear();
+        Transaction foundDeposit = session.find(Transaction.class, deposit.getId());
+        assertFalse(Hibernate.isInitialized(foundDeposit.getFromAccount()));
+
+        // Граф сущностей подгружает владельца вместе со счётом
+        session.clear();
+        Account withUser = session.find(Account.class, account.getId(),
+                Map.of("jakarta.persistence.fetchgraph", session.getEntityGraph(Account.WITH_USER)));
+        assertTrue(Hibernate.isInitialized(withUser.getUser()));
+        assertEquals("lazyuser", withUser.getUser().getLogin());
+
+        session.close();
+    }
+}